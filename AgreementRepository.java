@@ -0,0 +1,43 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// In-memory store of agreements indexed by ID, by house and by tenant.
+// findAll iterates in no particular order, so snapshots do not keep the order agreements were added in.
+class AgreementRepository {
+    private final Map<String, RentalAgreement> byId = new ConcurrentHashMap<>();
+    private final Map<String, List<RentalAgreement>> byHouse = new ConcurrentHashMap<>();
+    private final Map<String, List<RentalAgreement>> byTenant = new ConcurrentHashMap<>();
+
+    public RentalAgreement findById(String id) { return byId.get(id); }
+    public boolean contains(String id) { return byId.containsKey(id); }
+    public Collection<RentalAgreement> findAll() { return byId.values(); }
+    public int size() { return byId.size(); }
+
+    // Every agreement ever made for the house, past and future
+    public List<RentalAgreement> findByHouse(String houseId) {
+        return byHouse.getOrDefault(houseId, Collections.emptyList());
+    }
+
+    public List<RentalAgreement> findByTenant(String tenantId) {
+        return byTenant.getOrDefault(tenantId, Collections.emptyList());
+    }
+
+    // Add an agreement unless its ID is already taken, updating the secondary indexes
+    public boolean add(RentalAgreement agreement) {
+        if (byId.putIfAbsent(agreement.getId(), agreement) != null) return false;
+        if (agreement.getHouse() != null) {
+            byHouse.computeIfAbsent(agreement.getHouse().getId(), k -> new CopyOnWriteArrayList<>()).add(agreement);
+        }
+        if (agreement.getTenant() != null) {
+            byTenant.computeIfAbsent(agreement.getTenant().getId(), k -> new CopyOnWriteArrayList<>()).add(agreement);
+        }
+        return true;
+    }
+
+    public void clear() {
+        byId.clear();
+        byHouse.clear();
+        byTenant.clear();
+    }
+}
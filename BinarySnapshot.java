@@ -0,0 +1,230 @@
+import java.io.*;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+
+// Compact binary snapshot of all houses, tenants, agreements and payments, loaded through
+// a memory-mapped file. Layout (big-endian):
+//   header    magic, version, dictionary size, house, tenant, agreement and payment counts
+//   dictionary  every distinct string once, as length + UTF-8 bytes
+//   houses      id, location, owner (dictionary refs), price cents, bedrooms, booked flag, tenant id ref
+//   tenants     id, name, contact, preferred location (dictionary refs), budget cents, bedrooms
+//               (version 1 snapshots have no budget or bedrooms)
+//   agreements  id, house id, tenant id (refs), start and end epoch day, deposit cents,
+//               index of the first payment and payment count
+//   payments    epoch day, amount cents
+// Every record section is fixed-width; a reference of -1 stands for a missing value.
+class BinarySnapshot {
+    private static final int MAGIC = 0x52534e50; // "RSNP"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 28;
+    private static final int HOUSE_BYTES = 29;
+    private static final int TENANT_BYTES_V1 = 16;
+    private static final int TENANT_BYTES = 28;
+    private static final int AGREEMENT_BYTES = 36;
+    private static final int PAYMENT_BYTES = 12;
+
+    private final Path path;
+    private List<House> houses = new ArrayList<>();
+    private List<Tenant> tenants = new ArrayList<>();
+    private List<RentalAgreement> agreements = new ArrayList<>();
+
+    public BinarySnapshot(String file) {
+        this.path = Paths.get(file);
+    }
+
+    public boolean exists() { return Files.exists(path); }
+    public List<House> getHouses() { return houses; }
+    public List<Tenant> getTenants() { return tenants; }
+    public List<RentalAgreement> getAgreements() { return agreements; }
+
+    public static long toCents(double amount) { return Math.round(amount * 100); }
+    public static double fromCents(long cents) { return cents / 100.0; }
+
+    // Write the snapshot to a temporary file and move it over the previous one
+    public void write(Collection<House> houses, Collection<Tenant> tenants,
+                      Collection<RentalAgreement> agreements) throws IOException {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (House house : houses) {
+            ref(dictionary, house.getId());
+            ref(dictionary, house.getLocation());
+            ref(dictionary, house.getOwner());
+            ref(dictionary, house.getTenantId());
+        }
+        for (Tenant tenant : tenants) {
+            ref(dictionary, tenant.getId());
+            ref(dictionary, tenant.getName());
+            ref(dictionary, tenant.getContact());
+            ref(dictionary, tenant.getPreferredLocation());
+        }
+        int paymentCount = 0;
+        for (RentalAgreement agreement : agreements) {
+            ref(dictionary, agreement.getId());
+            paymentCount += agreement.getPayments().size();
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(dictionary.size());
+            out.writeInt(houses.size());
+            out.writeInt(tenants.size());
+            out.writeInt(agreements.size());
+            out.writeInt(paymentCount);
+            for (String value : dictionary.keySet()) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            for (House house : houses) {
+                out.writeInt(ref(dictionary, house.getId()));
+                out.writeInt(ref(dictionary, house.getLocation()));
+                out.writeInt(ref(dictionary, house.getOwner()));
+                out.writeLong(toCents(house.getPrice()));
+                out.writeInt(house.getBedrooms());
+                out.writeByte(house.isBooked() ? 1 : 0);
+                out.writeInt(ref(dictionary, house.getTenantId()));
+            }
+            for (Tenant tenant : tenants) {
+                out.writeInt(ref(dictionary, tenant.getId()));
+                out.writeInt(ref(dictionary, tenant.getName()));
+                out.writeInt(ref(dictionary, tenant.getContact()));
+                out.writeInt(ref(dictionary, tenant.getPreferredLocation()));
+                out.writeLong(toCents(tenant.getBudget()));
+                out.writeInt(tenant.getBedrooms());
+            }
+            int firstPayment = 0;
+            for (RentalAgreement agreement : agreements) {
+                int count = agreement.getPayments().size();
+                out.writeInt(ref(dictionary, agreement.getId()));
+                out.writeInt(agreement.getHouse() == null ? -1 : ref(dictionary, agreement.getHouse().getId()));
+                out.writeInt(agreement.getTenant() == null ? -1 : ref(dictionary, agreement.getTenant().getId()));
+                out.writeInt((int) agreement.getStartDate().toEpochDay());
+                out.writeInt((int) agreement.getEndDate().toEpochDay());
+                out.writeLong(toCents(agreement.getDeposit()));
+                out.writeInt(firstPayment);
+                out.writeInt(count);
+                firstPayment += count;
+            }
+            for (RentalAgreement agreement : agreements) {
+                PaymentLedger ledger = agreement.getLedger();
+                for (int i = 0; i < ledger.size(); i++) {
+                    out.writeInt(ledger.getEpochDay(i));
+                    out.writeLong(ledger.getAmountCents(i));
+                }
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Main.moveIntoPlace(temp, path);
+    }
+
+    // Map the snapshot and decode it; a single mapping limits snapshots to 2 GB.
+    // A truncated or damaged snapshot fails with an IOException, never a decoding exception.
+    public void read() throws IOException {
+        houses = new ArrayList<>();
+        tenants = new ArrayList<>();
+        agreements = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            decode(buffer);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt snapshot: " + path, e);
+        }
+    }
+
+    private void decode(MappedByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES) throw new IOException("Corrupt snapshot: " + path);
+        if (buffer.getInt() != MAGIC) throw new IOException("Not a rental snapshot: " + path);
+        int version = buffer.getInt();
+        if (version != 1 && version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+        int dictionarySize = buffer.getInt();
+        int houseCount = buffer.getInt();
+        int tenantCount = buffer.getInt();
+        int agreementCount = buffer.getInt();
+        int paymentCount = buffer.getInt();
+        // Every section is at least as long as its count implies, so the counts must fit in the file
+        long minimum = HEADER_BYTES + 4L * dictionarySize + (long) HOUSE_BYTES * houseCount +
+                       (long) (version == 1 ? TENANT_BYTES_V1 : TENANT_BYTES) * tenantCount + (long) AGREEMENT_BYTES * agreementCount +
+                       (long) PAYMENT_BYTES * paymentCount;
+        if ((dictionarySize | houseCount | tenantCount | agreementCount | paymentCount) < 0 || minimum > buffer.capacity()) {
+            throw new IOException("Corrupt snapshot: " + path);
+        }
+        String[] dictionary = new String[dictionarySize];
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < dictionary.length; i++) {
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) throw new IOException("Corrupt snapshot: " + path);
+            if (length > scratch.length) scratch = new byte[length];
+            buffer.get(scratch, 0, length);
+            dictionary[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        Map<String, House> housesById = new HashMap<>(houseCount * 2);
+        for (int i = 0; i < houseCount; i++) {
+            String id = lookup(dictionary, buffer.getInt());
+            String location = lookup(dictionary, buffer.getInt());
+            String owner = lookup(dictionary, buffer.getInt());
+            double price = fromCents(buffer.getLong());
+            House house = new House(id, location, price, buffer.getInt(), owner);
+            house.setIsBooked(buffer.get() != 0);
+            house.setTenantId(lookup(dictionary, buffer.getInt()));
+            houses.add(house);
+            housesById.put(id, house);
+        }
+        Map<String, Tenant> tenantsById = new HashMap<>(tenantCount * 2);
+        for (int i = 0; i < tenantCount; i++) {
+            String id = lookup(dictionary, buffer.getInt());
+            String name = lookup(dictionary, buffer.getInt());
+            String contact = lookup(dictionary, buffer.getInt());
+            String preferredLocation = lookup(dictionary, buffer.getInt());
+            Tenant tenant = version == 1 ? new Tenant(id, name, contact, preferredLocation)
+                    : new Tenant(id, name, contact, preferredLocation, fromCents(buffer.getLong()), buffer.getInt());
+            tenants.add(tenant);
+            tenantsById.put(tenant.getId(), tenant);
+        }
+
+        // Payments follow the agreements, so their section is addressed directly
+        int paymentsStart = buffer.position() + agreementCount * AGREEMENT_BYTES;
+        for (int i = 0; i < agreementCount; i++) {
+            String id = lookup(dictionary, buffer.getInt());
+            House house = housesById.get(lookup(dictionary, buffer.getInt()));
+            Tenant tenant = tenantsById.get(lookup(dictionary, buffer.getInt()));
+            LocalDate start = LocalDate.ofEpochDay(buffer.getInt());
+            LocalDate end = LocalDate.ofEpochDay(buffer.getInt());
+            RentalAgreement agreement = new RentalAgreement(id, house, tenant, start, end,
+                                                            fromCents(buffer.getLong()));
+            int firstPayment = buffer.getInt();
+            int count = buffer.getInt();
+            if (firstPayment < 0 || count < 0 || (long) firstPayment + count > paymentCount) {
+                throw new IOException("Corrupt snapshot: " + path);
+            }
+            for (int p = 0; p < count; p++) {
+                int offset = paymentsStart + (firstPayment + p) * PAYMENT_BYTES;
+                agreement.getLedger().add(buffer.getInt(offset), buffer.getLong(offset + 4));
+            }
+            agreements.add(agreement);
+        }
+    }
+
+    private static int ref(Map<String, Integer> dictionary, String value) {
+        if (value == null) return -1;
+        Integer index = dictionary.get(value);
+        if (index == null) {
+            index = dictionary.size();
+            dictionary.put(value, index);
+        }
+        return index;
+    }
+
+    private static String lookup(String[] dictionary, int index) {
+        return index < 0 ? null : dictionary[index];
+    }
+}
@@ -0,0 +1,290 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+// Kinds of record the bulk pipeline can import and export, with their CSV column order.
+// Columns past the required count are optional on import.
+enum BulkEntity {
+    HOUSES(5, "id", "location", "price", "bedrooms", "owner"),
+    TENANTS(4, "id", "name", "contact", "preferredLocation", "budget", "bedrooms"),
+    PAYMENTS(3, "agreementId", "date", "amount");
+
+    private final int requiredColumns;
+    private final String[] columns;
+
+    BulkEntity(int requiredColumns, String... columns) {
+        this.requiredColumns = requiredColumns;
+        this.columns = columns;
+    }
+
+    public int getRequiredColumns() { return requiredColumns; }
+    public String[] getColumns() { return columns; }
+}
+
+// A payment row from a bulk file, not yet attached to its agreement
+class PaymentEntry {
+    private String agreementId;
+    private LocalDate date;
+    private double amount;
+
+    public PaymentEntry(String agreementId, LocalDate date, double amount) {
+        this.agreementId = agreementId;
+        this.date = date;
+        this.amount = amount;
+    }
+
+    public String getAgreementId() { return agreementId; }
+    public LocalDate getDate() { return date; }
+    public double getAmount() { return amount; }
+}
+
+// A rejected row of an import file
+class ImportError {
+    private long row;
+    private String message;
+
+    public ImportError(long row, String message) {
+        this.row = row;
+        this.message = message;
+    }
+
+    public long getRow() { return row; }
+    public String getMessage() { return message; }
+
+    @Override
+    public String toString() {
+        return "row " + row + ": " + message;
+    }
+}
+
+// Outcome of an import run
+class ImportResult {
+    private long imported;
+    private final List<ImportError> errors = new ArrayList<>();
+
+    public long getImported() { return imported; }
+    public List<ImportError> getErrors() { return errors; }
+
+    void addImported(long count) { imported += count; }
+    void addError(long row, String message) { errors.add(new ImportError(row, message)); }
+}
+
+// Streaming bulk import and export of houses, tenants and payments as CSV or JSON Lines.
+// Imports are read chunk by chunk; the rows of a chunk are parsed in parallel, then
+// validated and committed by Main with a single log write per chunk.
+class BulkPipeline {
+    // Main's batch methods that validate and commit one chunk
+    interface BatchCommit<T> {
+        Map<Integer, String> commit(List<T> batch) throws IOException;
+    }
+
+    private final Main rms;
+    private final int chunkSize;
+    private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    public BulkPipeline(Main rms) {
+        this(rms, 10000);
+    }
+
+    public BulkPipeline(Main rms, int chunkSize) {
+        this.rms = rms;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    // Files ending in .jsonl or .json are read as JSON Lines, anything else as CSV
+    public static boolean isJsonLines(String file) {
+        String name = file.toLowerCase(Locale.ROOT);
+        return name.endsWith(".jsonl") || name.endsWith(".json");
+    }
+
+    public ImportResult importFile(BulkEntity entity, String file) throws IOException {
+        switch (entity) {
+            case HOUSES: return importFile(entity, file, this::toHouse, rms::addHouses);
+            case TENANTS: return importFile(entity, file, this::toTenant, rms::registerTenants);
+            default: return importFile(entity, file, this::toPayment, rms::recordPayments);
+        }
+    }
+
+    public long exportFile(BulkEntity entity, String file) throws IOException {
+        boolean json = isJsonLines(file);
+        long count = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8)) {
+            if (!json) {
+                writer.write(String.join(",", entity.getColumns()));
+                writer.newLine();
+            }
+            switch (entity) {
+                case HOUSES:
+                    for (House house : rms.getHouses()) {
+                        writeRow(writer, entity, json, house.getId(), house.getLocation(), house.getPrice(),
+                                 house.getBedrooms(), house.getOwner());
+                        count++;
+                    }
+                    break;
+                case TENANTS:
+                    for (Tenant tenant : rms.getTenants()) {
+                        writeRow(writer, entity, json, tenant.getId(), tenant.getName(), tenant.getContact(),
+                                 tenant.getPreferredLocation(), tenant.getBudget(), tenant.getBedrooms());
+                        count++;
+                    }
+                    break;
+                default:
+                    for (RentalAgreement agreement : rms.getAgreements()) {
+                        for (Payment payment : agreement.getPayments()) {
+                            writeRow(writer, entity, json, agreement.getId(), payment.getDate().format(dateFormatter),
+                                     payment.getAmount());
+                            count++;
+                        }
+                    }
+            }
+        }
+        return count;
+    }
+
+    private <T> ImportResult importFile(BulkEntity entity, String file, Function<Map<String, String>, T> builder,
+                                        BatchCommit<T> commit) throws IOException {
+        boolean json = isJsonLines(file);
+        ImportResult result = new ImportResult();
+        List<String> lines = new ArrayList<>(chunkSize);
+        List<Long> rows = new ArrayList<>(chunkSize);
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            String line;
+            long row = 0;
+            while ((line = reader.readLine()) != null) {
+                row++;
+                if (line.trim().isEmpty()) continue;
+                if (!json && row == 1 && isHeader(entity, line)) continue;
+                lines.add(line);
+                rows.add(row);
+                if (lines.size() == chunkSize) {
+                    importChunk(entity, json, lines, rows, builder, commit, result);
+                    lines.clear();
+                    rows.clear();
+                }
+            }
+        }
+        if (!lines.isEmpty()) importChunk(entity, json, lines, rows, builder, commit, result);
+        result.getErrors().sort(Comparator.comparingLong(ImportError::getRow));
+        return result;
+    }
+
+    private <T> void importChunk(BulkEntity entity, boolean json, List<String> lines, List<Long> rows,
+                                 Function<Map<String, String>, T> builder, BatchCommit<T> commit,
+                                 ImportResult result) throws IOException {
+        Object[] parsed = new Object[lines.size()];
+        String[] errors = new String[lines.size()];
+        IntStream.range(0, lines.size()).parallel().forEach(i -> {
+            try {
+                parsed[i] = builder.apply(fields(entity, json, lines.get(i)));
+            } catch (RuntimeException e) {
+                errors[i] = e.getMessage();
+            }
+        });
+
+        List<T> batch = new ArrayList<>(lines.size());
+        List<Long> batchRows = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            if (errors[i] != null) {
+                result.addError(rows.get(i), errors[i]);
+            } else {
+                @SuppressWarnings("unchecked")
+                T value = (T) parsed[i];
+                batch.add(value);
+                batchRows.add(rows.get(i));
+            }
+        }
+        Map<Integer, String> rejected = commit.commit(batch);
+        for (Map.Entry<Integer, String> entry : rejected.entrySet()) {
+            result.addError(batchRows.get(entry.getKey()), entry.getValue());
+        }
+        result.addImported(batch.size() - rejected.size());
+    }
+
+    private boolean isHeader(BulkEntity entity, String line) {
+        return line.split(",", -1)[0].trim().equalsIgnoreCase(entity.getColumns()[0]);
+    }
+
+    private Map<String, String> fields(BulkEntity entity, boolean json, String line) {
+        if (json) return Json.parseObject(line);
+        String[] columns = entity.getColumns();
+        String[] values = line.split(",", -1);
+        if (values.length != columns.length && values.length != entity.getRequiredColumns()) {
+            throw new IllegalArgumentException("Expected " + columns.length + " columns but found " + values.length);
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < values.length; i++) fields.put(columns[i], values[i].trim());
+        return fields;
+    }
+
+    private House toHouse(Map<String, String> fields) {
+        return new House(text(fields, "id"), text(fields, "location"), number(fields, "price"),
+                         integer(fields, "bedrooms"), text(fields, "owner"));
+    }
+
+    private Tenant toTenant(Map<String, String> fields) {
+        return new Tenant(text(fields, "id"), text(fields, "name"), text(fields, "contact"),
+                          text(fields, "preferredLocation"), present(fields, "budget") ? number(fields, "budget") : 0,
+                          present(fields, "bedrooms") ? integer(fields, "bedrooms") : 0);
+    }
+
+    private PaymentEntry toPayment(Map<String, String> fields) {
+        String date = text(fields, "date");
+        try {
+            return new PaymentEntry(text(fields, "agreementId"), LocalDate.parse(date, dateFormatter),
+                                    number(fields, "amount"));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date '" + date + "'");
+        }
+    }
+
+    // Same rules for text fields as the rest of Main
+    private String text(Map<String, String> fields, String name) {
+        return Main.requireText(name, fields.get(name)).trim();
+    }
+
+    private boolean present(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        return value != null && !value.trim().isEmpty();
+    }
+
+    private double number(Map<String, String> fields, String name) {
+        String value = text(fields, name);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " '" + value + "'");
+        }
+    }
+
+    private int integer(Map<String, String> fields, String name) {
+        String value = text(fields, name);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " '" + value + "'");
+        }
+    }
+
+    private void writeRow(BufferedWriter writer, BulkEntity entity, boolean json, Object... values) throws IOException {
+        if (json) {
+            Map<String, Object> fields = new LinkedHashMap<>();
+            String[] columns = entity.getColumns();
+            for (int i = 0; i < columns.length; i++) fields.put(columns[i], values[i]);
+            writer.write(Json.toJson(fields));
+        } else {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(values[i]);
+            }
+            writer.write(sb.toString());
+        }
+        writer.newLine();
+    }
+}
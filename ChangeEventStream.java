@@ -0,0 +1,358 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Kinds of change published to downstream consumers
+enum ChangeEventType {
+    HOUSE_ADDED("HouseAdded"),
+    HOUSE_REMOVED("HouseRemoved"),
+    TENANT_REGISTERED("TenantRegistered"),
+    HOUSE_BOOKED("HouseBooked"),
+    PAYMENT_RECORDED("PaymentRecorded"),
+    // Marker written in place of events dropped because the ring was full
+    EVENTS_DROPPED("EventsDropped");
+
+    private final String name;
+
+    ChangeEventType(String name) { this.name = name; }
+
+    public String getName() { return name; }
+}
+
+// One committed change: its type, when it happened and the fields describing it
+class ChangeEvent {
+    private final ChangeEventType type;
+    private final long timestamp;
+    private final Map<String, Object> fields;
+    private long sequence;
+    private long droppedBefore;
+
+    private ChangeEvent(ChangeEventType type, Map<String, Object> fields) {
+        this.type = type;
+        this.timestamp = System.currentTimeMillis();
+        this.fields = fields;
+    }
+
+    public static ChangeEvent houseAdded(House house) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("houseId", house.getId());
+        fields.put("location", house.getLocation());
+        fields.put("price", house.getPrice());
+        fields.put("bedrooms", house.getBedrooms());
+        fields.put("owner", house.getOwner());
+        return new ChangeEvent(ChangeEventType.HOUSE_ADDED, fields);
+    }
+
+    public static ChangeEvent houseRemoved(House house) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("houseId", house.getId());
+        fields.put("location", house.getLocation());
+        return new ChangeEvent(ChangeEventType.HOUSE_REMOVED, fields);
+    }
+
+    public static ChangeEvent tenantRegistered(Tenant tenant) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("tenantId", tenant.getId());
+        fields.put("name", tenant.getName());
+        fields.put("preferredLocation", tenant.getPreferredLocation());
+        return new ChangeEvent(ChangeEventType.TENANT_REGISTERED, fields);
+    }
+
+    public static ChangeEvent houseBooked(RentalAgreement agreement) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("agreementId", agreement.getId());
+        fields.put("houseId", agreement.getHouse().getId());
+        fields.put("tenantId", agreement.getTenant().getId());
+        fields.put("startDate", agreement.getStartDate().toString());
+        fields.put("endDate", agreement.getEndDate().toString());
+        fields.put("deposit", agreement.getDeposit());
+        return new ChangeEvent(ChangeEventType.HOUSE_BOOKED, fields);
+    }
+
+    public static ChangeEvent paymentRecorded(RentalAgreement agreement, LocalDate date, double amount) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("agreementId", agreement.getId());
+        fields.put("houseId", agreement.getHouse() == null ? null : agreement.getHouse().getId());
+        fields.put("date", date.toString());
+        fields.put("amount", amount);
+        return new ChangeEvent(ChangeEventType.PAYMENT_RECORDED, fields);
+    }
+
+    // Stands for count dropped events; its sequence is the last of the numbers they would have had
+    static ChangeEvent eventsDropped(long firstSequence, long count) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("firstSeq", firstSequence);
+        fields.put("count", count);
+        return new ChangeEvent(ChangeEventType.EVENTS_DROPPED, fields);
+    }
+
+    public ChangeEventType getType() { return type; }
+    public long getTimestamp() { return timestamp; }
+    public Map<String, Object> getFields() { return Collections.unmodifiableMap(fields); }
+    public long getSequence() { return sequence; }
+
+    void setSequence(long sequence) { this.sequence = sequence; }
+
+    // Events dropped just before this one was accepted onto the ring
+    long getDroppedBefore() { return droppedBefore; }
+    void setDroppedBefore(long droppedBefore) { this.droppedBefore = droppedBefore; }
+
+    public String toJson() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("seq", sequence);
+        json.put("type", type.getName());
+        json.put("time", Instant.ofEpochMilli(timestamp).toString());
+        json.putAll(fields);
+        return Json.toJson(json);
+    }
+}
+
+// Destination for batches of events, called from the stream's consumer thread only
+interface EventSink extends Closeable {
+    void write(List<ChangeEvent> batch) throws IOException;
+
+    // Sequence number of the last event already stored, so a restarted stream continues after it
+    default long lastSequence() { return 0; }
+}
+
+// Appends each event as one JSON line, flushing once per batch so the file can be tailed
+class JsonlEventSink implements EventSink {
+    private final BufferedWriter writer;
+    private final long lastSequence;
+
+    public JsonlEventSink(String file) throws IOException {
+        Path path = Paths.get(file);
+        lastSequence = readLastSequence(path);
+        boolean torn = endsWithPartialLine(path);
+        writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                                         StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        // A line cut short by a crash is left as it is; new events start on a line of their own
+        if (torn) {
+            writer.newLine();
+            writer.flush();
+        }
+    }
+
+    @Override
+    public long lastSequence() { return lastSequence; }
+
+    @Override
+    public void write(List<ChangeEvent> batch) throws IOException {
+        for (ChangeEvent event : batch) {
+            writer.write(event.toJson());
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    // Read the "seq" of the last complete line, scanning back from the end of the file past any
+    // line that does not parse, such as one torn by a crash
+    private static long readLastSequence(Path path) throws IOException {
+        if (!Files.exists(path)) return 0;
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+            long end = file.length();
+            int length = (int) Math.min(end, 64 * 1024);
+            byte[] tail = new byte[length];
+            file.seek(end - length);
+            file.readFully(tail);
+            int stop = length;
+            while (stop > 0) {
+                while (stop > 0 && (tail[stop - 1] == '\n' || tail[stop - 1] == '\r')) stop--;
+                int start = stop;
+                while (start > 0 && tail[start - 1] != '\n') start--;
+                // The first line in the window may be the end of a longer one
+                if (start == 0 && length < end) return 0;
+                if (start < stop) {
+                    try {
+                        String seq = Json.parseObject(new String(tail, start, stop - start, StandardCharsets.UTF_8)).get("seq");
+                        if (seq != null) return Long.parseLong(seq);
+                    } catch (RuntimeException e) {
+                        // Not a complete event; try the line before
+                    }
+                }
+                stop = start;
+            }
+            return 0;
+        }
+    }
+
+    private static boolean endsWithPartialLine(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) == 0) return false;
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+            file.seek(file.length() - 1);
+            return file.read() != '\n';
+        }
+    }
+}
+
+// Bounded multi-producer, single-consumer ring buffer. Producers claim a slot by advancing the
+// tail with a CAS and then publish the event into it; the consumer takes slots in order until it
+// reaches one that is not yet published. Neither side ever blocks: when the ring is full the
+// event is dropped and counted, and the next accepted event carries the count so the consumer
+// can leave a gap for it in the numbering.
+class EventRing {
+    private final AtomicReferenceArray<ChangeEvent> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong droppedSinceAccepted = new AtomicLong();
+
+    // Capacity is rounded up to a power of two
+    public EventRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    public boolean offer(ChangeEvent event) {
+        long claimed;
+        do {
+            claimed = tail.get();
+            if (claimed - head >= slots.length()) {
+                dropped.increment();
+                droppedSinceAccepted.incrementAndGet();
+                return false;
+            }
+        } while (!tail.compareAndSet(claimed, claimed + 1));
+        event.setDroppedBefore(droppedSinceAccepted.getAndSet(0));
+        slots.lazySet((int) claimed & mask, event);
+        return true;
+    }
+
+    // Move up to max published events into the batch; consumer thread only
+    public int drainTo(List<ChangeEvent> batch, int max) {
+        long next = head;
+        int taken = 0;
+        while (taken < max) {
+            int index = (int) next & mask;
+            ChangeEvent event = slots.get(index);
+            if (event == null) break;
+            slots.lazySet(index, null);
+            batch.add(event);
+            next++;
+            taken++;
+        }
+        head = next;
+        return taken;
+    }
+
+    // Drops not yet attached to an accepted event; consumer thread only, once the ring is empty
+    public long takeDropped() {
+        return droppedSinceAccepted.getAndSet(0);
+    }
+
+    public long getPublished() { return tail.get(); }
+    public long getDropped() { return dropped.sum(); }
+}
+
+// In-process feed of committed changes. Mutations publish onto the ring without waiting; one
+// consumer thread drains it in batches, numbers the events in ring order and hands each batch to
+// every sink. Dropped events still use up their sequence numbers, and an EventsDropped marker
+// takes the last of them, so readers can tell exactly which numbers were lost.
+class ChangeEventStream implements Closeable {
+    private final EventRing ring;
+    private final int batchSize;
+    private final List<EventSink> sinks = new ArrayList<>();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private volatile boolean running = true;
+    private final Thread consumer;
+    private long nextSequence;
+
+    public ChangeEventStream(int capacity, int batchSize, List<EventSink> sinks) {
+        long last = 0;
+        for (EventSink sink : sinks) last = Math.max(last, sink.lastSequence());
+        this.nextSequence = last + 1;
+        this.ring = new EventRing(capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.sinks.addAll(sinks);
+        consumer = new Thread(this::consume, "change-events");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    // Never blocks; returns false when the ring is full and the event was dropped
+    public boolean publish(ChangeEvent event) {
+        return ring.offer(event);
+    }
+
+    public long getPublished() { return ring.getPublished(); }
+    public long getDropped() { return ring.getDropped(); }
+    public long getWritten() { return written.sum(); }
+    public long getFailedBatches() { return failedBatches.sum(); }
+
+    // Stop the consumer once everything published so far has been written, then close the sinks
+    @Override
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (EventSink sink : sinks) sink.close();
+    }
+
+    private void consume() {
+        List<ChangeEvent> batch = new ArrayList<>(batchSize);
+        while (true) {
+            boolean stopping = !running;
+            batch.clear();
+            if (ring.drainTo(batch, batchSize) == 0) {
+                // Drops with no accepted event after them would otherwise go unrecorded
+                long dropped = ring.takeDropped();
+                if (dropped > 0) {
+                    batch.add(ChangeEvent.eventsDropped(nextSequence, dropped));
+                } else if (stopping) {
+                    return;
+                } else {
+                    LockSupport.parkNanos(1_000_000);
+                    continue;
+                }
+            }
+            number(batch);
+            boolean delivered = true;
+            for (EventSink sink : sinks) {
+                try {
+                    sink.write(batch);
+                } catch (IOException e) {
+                    delivered = false;
+                    System.err.println("Event sink failed: " + e.getMessage());
+                }
+            }
+            if (delivered) written.add(batch.size());
+            else failedBatches.increment();
+        }
+    }
+
+    // Give each event the next sequence number, preceded by a marker for any drops before it
+    private void number(List<ChangeEvent> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            ChangeEvent event = batch.get(i);
+            long dropped = event.getDroppedBefore();
+            if (dropped > 0) {
+                ChangeEvent marker = ChangeEvent.eventsDropped(nextSequence, dropped);
+                nextSequence += dropped - 1;
+                marker.setSequence(nextSequence++);
+                batch.add(i++, marker);
+            } else if (event.getType() == ChangeEventType.EVENTS_DROPPED) {
+                nextSequence += (Long) event.getFields().get("count") - 1;
+            }
+            event.setSequence(nextSequence++);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Stress test for ConcurrentRentalService. Thousands of threads are released at once to book a
+// small pool of houses for the same dates, then to pay against the agreements that won. It
+// checks that every house was booked at most once, that every accepted payment is on its
+// ledger, and that all of it survives a compaction and a reload from the data files.
+// Exits with status 1 on the first violated invariant.
+//
+// Usage: java ConcurrencyStressTest [threads] [houses] [paymentsPerThread]
+//   defaults: 2000 threads, 500 houses, 10 payments per thread
+public class ConcurrencyStressTest {
+    private final int threads;
+    private final int houses;
+    private final int paymentsPerThread;
+    private final LocalDate start = LocalDate.now();
+    private final LocalDate end = start.plusYears(1);
+
+    public ConcurrencyStressTest(int threads, int houses, int paymentsPerThread) {
+        this.threads = threads;
+        this.houses = houses;
+        this.paymentsPerThread = paymentsPerThread;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int houses = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int payments = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        // The invariants do not depend on fsync, so leave it to compaction
+        System.setProperty("rental.wal.fsyncBatch", String.valueOf(Integer.MAX_VALUE));
+        String dir = Files.createTempDirectory("rental-stress-").toString();
+        try {
+            new ConcurrencyStressTest(threads, houses, payments).run(dir);
+        } catch (AssertionError e) {
+            System.out.println("FAILED: " + e.getMessage() + " (data left in " + dir + ")");
+            System.exit(1);
+        }
+        RentalBenchmark.deleteRecursively(java.nio.file.Paths.get(dir));
+        System.out.println("PASSED");
+    }
+
+    public void run(String dir) throws Exception {
+        Main rms = new Main(dir);
+        rms.load();
+        ConcurrentRentalService service = new ConcurrentRentalService(rms);
+        for (int i = 0; i < houses; i++) service.addHouse("h" + i, "stress", 10000, 2, "owner");
+        for (int i = 0; i < threads; i++) service.registerTenant("t" + i, "tenant" + i, "contact", "stress");
+
+        // Every thread tries three houses; with more threads than houses each house is contested
+        Map<String, String> winners = new ConcurrentHashMap<>();
+        AtomicInteger doubleBookings = new AtomicInteger();
+        runAll(thread -> {
+            Random random = new Random(thread);
+            for (int attempt = 0; attempt < 3; attempt++) {
+                String houseId = "h" + random.nextInt(houses);
+                try {
+                    String agreementId = service.bookHouse(houseId, "t" + thread, start, end, 20000);
+                    if (winners.putIfAbsent(houseId, agreementId) != null) doubleBookings.incrementAndGet();
+                } catch (Exception e) {
+                    // Lost the race for this house
+                }
+            }
+        });
+        check(doubleBookings.get() == 0, doubleBookings.get() + " house(s) booked twice for the same dates");
+        check(rms.getAgreements().size() == winners.size(),
+              rms.getAgreements().size() + " agreements for " + winners.size() + " successful bookings");
+        for (House house : rms.getHouses()) {
+            check(house.isBooked() == winners.containsKey(house.getId()), "house " + house.getId() + " booked flag is wrong");
+        }
+        System.out.println("Booking: " + winners.size() + " of " + houses + " houses booked once each by " +
+                           threads + " threads");
+
+        // Payments: count what each thread was told succeeded, then compare with the ledgers
+        List<String> agreementIds = new ArrayList<>(winners.values());
+        Map<String, LongAdder> accepted = new ConcurrentHashMap<>();
+        runAll(thread -> {
+            Random random = new Random(~thread);
+            for (int i = 0; i < paymentsPerThread; i++) {
+                String agreementId = agreementIds.get(random.nextInt(agreementIds.size()));
+                try {
+                    service.recordPayment(agreementId, start.plusDays(i), 100);
+                    accepted.computeIfAbsent(agreementId, k -> new LongAdder()).increment();
+                } catch (Exception e) {
+                    throw new AssertionError("payment on " + agreementId + " failed: " + e.getMessage());
+                }
+            }
+        });
+        long total = verifyPayments(rms, accepted);
+        System.out.println("Payments: " + total + " recorded by " + threads + " threads, none lost");
+
+        rms.close();
+        Main reloaded = new Main(dir);
+        reloaded.load();
+        check(reloaded.getAgreements().size() == winners.size(), "agreements lost across restart");
+        verifyPayments(reloaded, accepted);
+        reloaded.close();
+        System.out.println("Restart: every agreement and payment was reloaded from the data files");
+    }
+
+    private long verifyPayments(Main rms, Map<String, LongAdder> accepted) throws Exception {
+        long total = 0;
+        for (RentalAgreement agreement : rms.getAgreements()) {
+            LongAdder count = accepted.get(agreement.getId());
+            long expected = count == null ? 0 : count.sum();
+            check(agreement.getPayments().size() == expected,
+                  agreement.getId() + " has " + agreement.getPayments().size() + " payments, expected " + expected);
+            check(Math.abs(agreement.getTotalPaid() - expected * 100.0) < 0.001, agreement.getId() + " total is wrong");
+            total += expected;
+        }
+        check(total == (long) threads * paymentsPerThread, total + " payments on ledgers, expected " +
+              (long) threads * paymentsPerThread);
+        return total;
+    }
+
+    interface Task {
+        void run(int thread) throws Exception;
+    }
+
+    // Start one thread per task and release them together, so they contend as hard as possible
+    private void runAll(Task task) throws Exception {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> started = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int thread = i;
+            Thread t = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                    task.run(thread);
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }, "stress-" + i);
+            t.start();
+            started.add(t);
+        }
+        ready.await();
+        go.countDown();
+        for (Thread t : started) t.join();
+        if (!failures.isEmpty()) throw new AssertionError(failures.get(0).getMessage(), failures.get(0));
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+}
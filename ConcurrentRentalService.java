@@ -0,0 +1,112 @@
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Thread-safe facade over Main for serving many agents at once.
+// Mutations of a house are serialized on that house's lock stripe, so two bookings of
+// the same house can never both succeed while bookings of different houses run in
+// parallel. Payments are serialized per agreement; searches never take a lock.
+class ConcurrentRentalService {
+    private final Main rms;
+    private final LockStripes houseLocks;
+    private final LockStripes tenantLocks;
+    private final LockStripes agreementLocks;
+
+    public ConcurrentRentalService(Main rms) {
+        this(rms, 1024);
+    }
+
+    public ConcurrentRentalService(Main rms, int stripes) {
+        this.rms = rms;
+        this.houseLocks = new LockStripes(stripes);
+        this.tenantLocks = new LockStripes(stripes);
+        this.agreementLocks = new LockStripes(stripes);
+    }
+
+    public void addHouse(String id, String location, double price, int bedrooms, String owner) throws Exception {
+        ReentrantLock lock = houseLocks.lockFor(id);
+        lock.lock();
+        try {
+            rms.addHouse(id, location, price, bedrooms, owner);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void removeHouse(String id) throws Exception {
+        ReentrantLock lock = houseLocks.lockFor(id);
+        lock.lock();
+        try {
+            rms.removeHouse(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void registerTenant(String id, String name, String contact, String preferredLocation) throws Exception {
+        registerTenant(id, name, contact, preferredLocation, 0, 0);
+    }
+
+    public void registerTenant(String id, String name, String contact, String preferredLocation,
+                               double budget, int bedrooms) throws Exception {
+        ReentrantLock lock = tenantLocks.lockFor(id);
+        lock.lock();
+        try {
+            rms.registerTenant(id, name, contact, preferredLocation, budget, bedrooms);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String bookHouse(String houseId, String tenantId, LocalDate startDate, LocalDate endDate, double deposit) throws Exception {
+        ReentrantLock lock = houseLocks.lockFor(houseId);
+        lock.lock();
+        try {
+            return rms.bookHouse(houseId, tenantId, startDate, endDate, deposit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void recordPayment(String agreementId, LocalDate date, double amount) throws Exception {
+        ReentrantLock lock = agreementLocks.lockFor(agreementId);
+        lock.lock();
+        try {
+            rms.recordPayment(agreementId, date, amount);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<House> searchHouses(String location, double maxPrice) {
+        return rms.searchHouses(location, maxPrice);
+    }
+
+    public List<House> searchHouses(String location, double maxPrice, int minBedrooms, int offset, int limit) {
+        return rms.searchHouses(location, maxPrice, minBedrooms, offset, limit);
+    }
+
+    public List<House> findAvailableHouses(String location, LocalDate from, LocalDate to) {
+        return rms.findAvailableHouses(location, from, to);
+    }
+
+    public List<House> matchTenantWithHouses(String tenantId) throws Exception {
+        return rms.matchTenantWithHouses(tenantId);
+    }
+
+    public List<ScoredHouse> rankHousesForTenant(String tenantId, int k) throws Exception {
+        return rms.rankHousesForTenant(tenantId, k);
+    }
+
+    public RevenueTotals getOwnerRevenue(String owner) {
+        return rms.getOwnerRevenue(owner);
+    }
+
+    public RevenueTotals getLocationRevenue(String location) {
+        return rms.getLocationRevenue(location);
+    }
+
+    public RentalAgreement getAgreement(String agreementId) throws Exception {
+        return rms.getAgreement(agreementId);
+    }
+}
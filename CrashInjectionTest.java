@@ -0,0 +1,131 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.*;
+
+// Crash-injection test for the write-ahead log and atomic snapshots. A child JVM adds a house,
+// registers a tenant, books the house and records a payment in a loop, compacting every few
+// rounds, and prints an acknowledgement after each completed round. The parent kills it with
+// SIGKILL at a random moment, reloads the data directory and checks that every acknowledged
+// round survived and that nothing was applied twice. The same directory is reused across kills,
+// so each child also recovers from the previous crash. Exits with status 1 on the first failure.
+//
+// SIGKILL ends the process but not the OS, so this covers process crashes, not power loss.
+//
+// Usage: java [-Drental.format=binary] [-Drental.durability=group] CrashInjectionTest [kills] [maxDelayMs]
+//   defaults: 15 kills, each within 1500 ms of the child starting
+public class CrashInjectionTest {
+    private static final int COMPACT_EVERY = 20;
+    private static final LocalDate START = LocalDate.now();
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals("child")) {
+            runChild(args[1]);
+            return;
+        }
+        int kills = args.length > 0 ? Integer.parseInt(args[0]) : 15;
+        int maxDelayMs = args.length > 1 ? Integer.parseInt(args[1]) : 1500;
+        String dir = Files.createTempDirectory("rental-crash-").toString();
+        Random random = new Random(7);
+        Set<Integer> acknowledged = new TreeSet<>();
+        try {
+            for (int kill = 1; kill <= kills; kill++) {
+                int before = acknowledged.size();
+                runAndKill(dir, 300 + random.nextInt(Math.max(1, maxDelayMs - 300)), acknowledged);
+                verify(dir, acknowledged);
+                System.out.println("Kill " + kill + ": " + (acknowledged.size() - before) + " new round(s) acknowledged, " +
+                                   acknowledged.size() + " in total, all recovered");
+            }
+        } catch (AssertionError e) {
+            System.out.println("FAILED: " + e.getMessage() + " (data left in " + dir + ")");
+            System.exit(1);
+        }
+        RentalBenchmark.deleteRecursively(Paths.get(dir));
+        System.out.println("PASSED");
+    }
+
+    // Start a child on the directory, collect its acknowledgements and kill it after delayMs
+    private static void runAndKill(String dir, long delayMs, Set<Integer> acknowledged) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String property : new String[] {"rental.format", "rental.durability", "rental.wal.fsyncBatch"}) {
+            String value = System.getProperty(property);
+            if (value != null) command.add("-D" + property + "=" + value);
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(CrashInjectionTest.class.getName());
+        command.add("child");
+        command.add(dir);
+        Process child = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<String> output = Collections.synchronizedList(new ArrayList<>());
+        Thread reader = new Thread(() -> {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(child.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) output.add(line);
+            } catch (IOException e) {
+                // Pipe closed by the kill
+            }
+        });
+        reader.start();
+        Thread.sleep(delayMs);
+        child.destroyForcibly();
+        child.waitFor();
+        reader.join();
+        for (String line : output) {
+            if (line.startsWith("ACK ")) acknowledged.add(Integer.parseInt(line.substring(4)));
+            else if (!line.startsWith("READY")) throw new AssertionError("child failed: " + line);
+        }
+    }
+
+    // Every acknowledged round must be fully present; no round may be booked or paid twice
+    private static void verify(String dir, Set<Integer> acknowledged) throws Exception {
+        Main rms = new Main(dir);
+        try {
+            rms.load();
+        } catch (IOException e) {
+            throw new AssertionError("reload failed: " + e.getMessage(), e);
+        }
+        Set<String> houseIds = new HashSet<>();
+        for (House house : rms.getHouses()) houseIds.add(house.getId());
+        Set<String> tenantIds = new HashSet<>();
+        for (Tenant tenant : rms.getTenants()) tenantIds.add(tenant.getId());
+        Map<String, RentalAgreement> byHouse = new HashMap<>();
+        for (RentalAgreement agreement : rms.getAgreements()) {
+            check(agreement.getHouse() != null, agreement.getId() + " lost its house");
+            check(byHouse.put(agreement.getHouse().getId(), agreement) == null,
+                  agreement.getHouse().getId() + " booked twice");
+            check(agreement.getPayments().size() <= 1, agreement.getId() + " has " + agreement.getPayments().size() +
+                  " payments; a payment was replayed twice");
+        }
+        for (int round : acknowledged) {
+            check(houseIds.contains("h" + round), "acknowledged house h" + round + " lost");
+            check(tenantIds.contains("t" + round), "acknowledged tenant t" + round + " lost");
+            RentalAgreement agreement = byHouse.get("h" + round);
+            check(agreement != null, "acknowledged booking of h" + round + " lost");
+            check(agreement.getPayments().size() == 1, "acknowledged payment on " + agreement.getId() + " lost");
+        }
+    }
+
+    // Continue the rounds after whatever the previous child left behind, until killed
+    private static void runChild(String dir) throws Exception {
+        Main rms = new Main(dir);
+        rms.load();
+        System.out.println("READY");
+        for (int round = rms.getHouses().size(); ; round++) {
+            rms.addHouse("h" + round, "crash", 10000, 2, "owner");
+            rms.registerTenant("t" + round, "tenant" + round, "contact", "crash");
+            String agreementId = rms.bookHouse("h" + round, "t" + round, START, START.plusYears(1), 20000);
+            rms.recordPayment(agreementId, START, 10000);
+            System.out.println("ACK " + round);
+            System.out.flush();
+            if (round % COMPACT_EVERY == 0) rms.compact();
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+}
@@ -0,0 +1,40 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory store of houses indexed by ID and by normalized location
+class HouseRepository {
+    private final Map<String, House> byId = new ConcurrentHashMap<>();
+    private final Map<String, Set<House>> byLocation = new ConcurrentHashMap<>();
+
+    public House findById(String id) { return byId.get(id); }
+    public boolean contains(String id) { return byId.containsKey(id); }
+    public Collection<House> findAll() { return byId.values(); }
+    public int size() { return byId.size(); }
+
+    // Every house in a location, booked or not
+    public Set<House> findByLocation(String location) {
+        return byLocation.getOrDefault(HouseSearchIndex.normalize(location), Collections.emptySet());
+    }
+
+    // Add a house unless its ID is already taken
+    public boolean add(House house) {
+        if (byId.putIfAbsent(house.getId(), house) != null) return false;
+        byLocation.computeIfAbsent(HouseSearchIndex.normalize(house.getLocation()), k -> ConcurrentHashMap.newKeySet())
+                  .add(house);
+        return true;
+    }
+
+    public House remove(String id) {
+        House house = byId.remove(id);
+        if (house != null) {
+            Set<House> sameLocation = byLocation.get(HouseSearchIndex.normalize(house.getLocation()));
+            if (sameLocation != null) sameLocation.remove(house);
+        }
+        return house;
+    }
+
+    public void clear() {
+        byId.clear();
+        byLocation.clear();
+    }
+}
@@ -0,0 +1,82 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Index of unbooked houses, bucketed by normalized location and sorted by price within each bucket.
+// All maps are concurrent so searches never block on bookings.
+class HouseSearchIndex {
+    private final Map<String, ConcurrentSkipListMap<Double, Map<String, House>>> byLocation = new ConcurrentHashMap<>();
+
+    public static String normalize(String location) {
+        return location == null ? "" : location.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Index a house if it is available; booked houses are never returned by searches
+    public void add(House house) {
+        if (house.isBooked()) return;
+        byLocation.computeIfAbsent(normalize(house.getLocation()), k -> new ConcurrentSkipListMap<>())
+                  .computeIfAbsent(house.getPrice(), k -> new ConcurrentHashMap<>())
+                  .put(house.getId(), house);
+    }
+
+    // Empty buckets are left in place: pruning them could race with a concurrent add
+    public void remove(House house) {
+        ConcurrentSkipListMap<Double, Map<String, House>> byPrice = byLocation.get(normalize(house.getLocation()));
+        if (byPrice == null) return;
+        Map<String, House> samePrice = byPrice.get(house.getPrice());
+        if (samePrice != null) samePrice.remove(house.getId());
+    }
+
+    public void rebuild(Collection<House> houses) {
+        byLocation.clear();
+        for (House house : houses) add(house);
+    }
+
+    // Normalized locations that have, or once had, an available house
+    public Set<String> locations() {
+        return byLocation.keySet();
+    }
+
+    // Visit every available house in a location up to maxPrice, cheapest first
+    public void forEach(String location, double maxPrice, Consumer<House> visitor) {
+        ConcurrentSkipListMap<Double, Map<String, House>> byPrice = byLocation.get(normalize(location));
+        if (byPrice == null) return;
+        for (Map<String, House> samePrice : byPrice.headMap(maxPrice, true).values()) {
+            for (House house : samePrice.values()) visitor.accept(house);
+        }
+    }
+
+    // Visit available houses in a location up to maxPrice, cheapest first, until the visitor returns false
+    public void forEachWhile(String location, double maxPrice, Predicate<House> visitor) {
+        ConcurrentSkipListMap<Double, Map<String, House>> byPrice = byLocation.get(normalize(location));
+        if (byPrice == null) return;
+        for (Map<String, House> samePrice : byPrice.headMap(maxPrice, true).values()) {
+            for (House house : samePrice.values()) {
+                if (!visitor.test(house)) return;
+            }
+        }
+    }
+
+    // Available houses in a location up to maxPrice, cheapest first.
+    // minBedrooms <= 0 disables the bedroom filter; offset/limit page through the matches.
+    public List<House> search(String location, double maxPrice, int minBedrooms, int offset, int limit) {
+        List<House> results = new ArrayList<>();
+        ConcurrentSkipListMap<Double, Map<String, House>> byPrice = byLocation.get(normalize(location));
+        if (byPrice == null || limit <= 0) return results;
+        int skipped = 0;
+        for (Map<String, House> samePrice : byPrice.headMap(maxPrice, true).values()) {
+            for (House house : samePrice.values()) {
+                if (house.getBedrooms() < minBedrooms) continue;
+                if (skipped < offset) {
+                    skipped++;
+                    continue;
+                }
+                results.add(house);
+                if (results.size() >= limit) return results;
+            }
+        }
+        return results;
+    }
+}
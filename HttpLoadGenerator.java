@@ -0,0 +1,149 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Local load generator for the HTTP API. Registers houses and tenants, then runs concurrent
+// clients that each search, book a house of their own and pay for it, and reports throughput
+// and latency percentiles per request type.
+//
+// Usage: java [-Drental.durability=group] HttpLoadGenerator [baseUrl] [clients] [rounds]
+//   baseUrl "local" (the default) starts an in-process server on a free port with an empty
+//   temp data directory, using the same durability settings as "java Main serve" unless
+//   overridden; clients default to 1000 and rounds to 5
+public class HttpLoadGenerator {
+    private static final String[] LOCATIONS = {"chennai", "coimbatore", "bangalore", "madurai"};
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentSkipListMap<>();
+    private final AtomicLong failures = new AtomicLong();
+
+    public HttpLoadGenerator(String baseUrl, ExecutorService executor) {
+        this.baseUrl = baseUrl;
+        this.client = HttpClient.newBuilder().executor(executor).connectTimeout(Duration.ofSeconds(10)).build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        RentalHttpServer server = null;
+        Main rms = null;
+        Path dir = null;
+        String baseUrl;
+        ExecutorService executor = RentalHttpServer.newRequestExecutor();
+        try {
+            if (args.length > 0 && !args[0].equals("local")) {
+                baseUrl = args[0];
+            } else {
+                dir = Files.createTempDirectory("rental-load-");
+                rms = new Main(dir.toString());
+                rms.load();
+                // Background log sync as in "java Main serve", which group commit relies on
+                rms.startBackgroundTasks();
+                server = new RentalHttpServer(new ConcurrentRentalService(rms), 0);
+                server.start();
+                baseUrl = "http://localhost:" + server.getPort();
+                System.out.println("Local server: durability " + System.getProperty("rental.durability", "sync") +
+                                   ", fsync every " + Integer.getInteger("rental.wal.fsyncBatch", 1) + " record(s)");
+            }
+            new HttpLoadGenerator(baseUrl, executor).run(clients, rounds);
+        } finally {
+            executor.shutdown();
+            if (server != null) server.stop();
+            if (rms != null) rms.close();
+            if (dir != null) RentalBenchmark.deleteRecursively(dir);
+        }
+    }
+
+    public void run(int clients, int rounds) throws Exception {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        ExecutorService executor = RentalHttpServer.newRequestExecutor();
+        try {
+            // Every client gets one house per round and one tenant
+            List<Callable<Void>> setup = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                int clientId = c;
+                setup.add(() -> {
+                    String location = LOCATIONS[clientId % LOCATIONS.length];
+                    send("registerTenant", "POST", "/tenants", "{\"id\":\"lt" + runId + "-" + clientId +
+                         "\",\"name\":\"load\",\"contact\":\"0\",\"preferredLocation\":\"" + location + "\"}");
+                    for (int r = 0; r < rounds; r++) {
+                        send("addHouse", "POST", "/houses", "{\"id\":\"lh" + runId + "-" + clientId + "-" + r +
+                             "\",\"location\":\"" + location + "\",\"price\":" + (5000 + clientId % 50 * 1000) +
+                             ",\"bedrooms\":2,\"owner\":\"load\"}");
+                    }
+                    return null;
+                });
+            }
+            timed("setup", clients * (rounds + 1L), () -> invokeAll(executor, setup));
+
+            List<Callable<Void>> workload = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                int clientId = c;
+                workload.add(() -> {
+                    String location = LOCATIONS[clientId % LOCATIONS.length];
+                    String tenantId = "lt" + runId + "-" + clientId;
+                    for (int r = 0; r < rounds; r++) {
+                        send("searchHouses", "GET", "/houses?location=" + location + "&maxPrice=60000&limit=20", null);
+                        String booked = send("bookHouse", "POST", "/bookings", "{\"houseId\":\"lh" + runId + "-" +
+                                             clientId + "-" + r + "\",\"tenantId\":\"" + tenantId +
+                                             "\",\"startDate\":\"" + LocalDate.now() + "\",\"endDate\":\"" +
+                                             LocalDate.now().plusYears(1) + "\",\"deposit\":1000}");
+                        if (booked == null) continue;
+                        String agreementId = Json.parseObject(booked).get("agreementId");
+                        send("recordPayment", "POST", "/agreements/" + agreementId + "/payments",
+                             "{\"date\":\"" + LocalDate.now() + "\",\"amount\":5000}");
+                    }
+                    return null;
+                });
+            }
+            timed("workload", clients * rounds * 3L, () -> invokeAll(executor, workload));
+        } finally {
+            executor.shutdown();
+        }
+
+        System.out.println(String.format("%-14s %9s %10s %10s %10s %10s", "request", "count", "p50 ms", "p99 ms",
+                                         "p999 ms", "max ms"));
+        latencies.forEach((name, histogram) -> System.out.println(String.format(
+            "%-14s %9d %10.2f %10.2f %10.2f %10.2f", name, histogram.getCount(), histogram.getPercentile(50) / 1e6,
+            histogram.getPercentile(99) / 1e6, histogram.getPercentile(99.9) / 1e6, histogram.getMax() / 1e6)));
+        System.out.println("Failed requests: " + failures.get());
+    }
+
+    interface Phase {
+        void run() throws Exception;
+    }
+
+    private void timed(String name, long requests, Phase phase) throws Exception {
+        long started = System.nanoTime();
+        phase.run();
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.out.println(String.format("%s: %d requests in %.2f s (%.0f req/s)", name, requests, seconds,
+                                         requests / seconds));
+    }
+
+    private static void invokeAll(ExecutorService executor, List<Callable<Void>> tasks) throws Exception {
+        for (Future<Void> future : executor.invokeAll(tasks)) future.get();
+    }
+
+    // Send one request and record its latency; returns the body of a 2xx response, otherwise null
+    private String send(String name, String method, String path, String json) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30));
+        if (json == null) request.method(method, HttpRequest.BodyPublishers.noBody());
+        else request.header("Content-Type", "application/json").method(method, HttpRequest.BodyPublishers.ofString(json));
+        long started = System.nanoTime();
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        latencies.computeIfAbsent(name, k -> new LatencyHistogram()).record(System.nanoTime() - started);
+        if (response.statusCode() / 100 == 2) return response.body();
+        failures.incrementAndGet();
+        return null;
+    }
+}
@@ -0,0 +1,147 @@
+import java.util.*;
+
+// Minimal JSON support for flat objects of strings, numbers, booleans and nulls,
+// as used by the JSON Lines import files
+class Json {
+    private final String text;
+    private int pos;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    // Parse one flat object; values are returned as strings (null for JSON null)
+    public static Map<String, String> parseObject(String text) {
+        Json parser = new Json(text);
+        Map<String, String> result = parser.readObject();
+        parser.skipWhitespace();
+        if (parser.pos != text.length()) throw parser.error("Unexpected trailing characters");
+        return result;
+    }
+
+    // Render a flat object; numbers and booleans are written unquoted
+    public static String toJson(Map<String, ?> fields) {
+        StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<String, ?> entry : fields.entrySet()) {
+            if (sb.length() > 1) sb.append(',');
+            quote(sb, entry.getKey());
+            sb.append(':');
+            appendValue(sb, entry.getValue());
+        }
+        return sb.append('}').toString();
+    }
+
+    static void appendValue(StringBuilder sb, Object value) {
+        if (value == null) sb.append("null");
+        else if (value instanceof Number || value instanceof Boolean) sb.append(value);
+        else quote(sb, value.toString());
+    }
+
+    static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    private Map<String, String> readObject() {
+        Map<String, String> result = new LinkedHashMap<>();
+        skipWhitespace();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return result;
+        }
+        while (true) {
+            skipWhitespace();
+            String key = readString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            result.put(key, readValue());
+            skipWhitespace();
+            char c = next();
+            if (c == '}') return result;
+            if (c != ',') throw error("Expected ',' or '}'");
+        }
+    }
+
+    private String readValue() {
+        char c = peek();
+        if (c == '"') return readString();
+        if (c == '{' || c == '[') throw error("Nested values are not supported");
+        int start = pos;
+        while (pos < text.length() && ",}] \t\r\n".indexOf(text.charAt(pos)) < 0) pos++;
+        String literal = text.substring(start, pos);
+        if (literal.equals("null")) return null;
+        if (literal.equals("true") || literal.equals("false")) return literal;
+        try {
+            Double.parseDouble(literal);
+        } catch (NumberFormatException e) {
+            throw error("Invalid value '" + literal + "'");
+        }
+        return literal;
+    }
+
+    private String readString() {
+        expect('"');
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            char c = next();
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char escaped = next();
+            switch (escaped) {
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    if (pos + 4 > text.length()) throw error("Invalid unicode escape");
+                    sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    pos += 4;
+                    break;
+                default: sb.append(escaped);
+            }
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+    }
+
+    private char peek() {
+        if (pos >= text.length()) throw error("Unexpected end of input");
+        return text.charAt(pos);
+    }
+
+    private char next() {
+        char c = peek();
+        pos++;
+        return c;
+    }
+
+    private void expect(char c) {
+        if (next() != c) throw error("Expected '" + c + "'");
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + pos);
+    }
+}
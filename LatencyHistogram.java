@@ -0,0 +1,69 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free log-linear histogram of nanosecond latencies in the style of HdrHistogram:
+// values below 64 are counted exactly, larger values in 32 sub-buckets per power of two,
+// so any recorded value is reported within about 3% of its true value.
+class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int LINEAR_LIMIT = SUB_COUNT * 2;
+    private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long valueNs) {
+        long value = Math.max(0, valueNs);
+        counts.incrementAndGet(bucketOf(value));
+        total.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) current = max.get();
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) count += counts.get(i);
+        return count;
+    }
+
+    public long getMax() { return max.get(); }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) total.sum() / count;
+    }
+
+    // Value at the given percentile (0-100), reported as the upper bound of its bucket
+    public long getPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    static int bucketOf(long value) {
+        if (value < LINEAR_LIMIT) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return LINEAR_LIMIT + (shift - 1) * SUB_COUNT + (int) ((value >>> shift) - SUB_COUNT);
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < LINEAR_LIMIT) return bucket;
+        int shift = (bucket - LINEAR_LIMIT) / SUB_COUNT + 1;
+        long sub = (bucket - LINEAR_LIMIT) % SUB_COUNT + SUB_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+}
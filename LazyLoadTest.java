@@ -0,0 +1,98 @@
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.*;
+
+// Check for -Drental.payments.lazy=true. It saves expired and active agreements eagerly, whose
+// house and tenant IDs contain brackets, then reloads them lazily. It checks that every payment
+// history and the revenue totals match what was saved, both after the lazy load and after the
+// lazy instance has rewritten agreements.txt. Exits with status 1 on the first mismatch.
+//
+// Usage: java LazyLoadTest
+public class LazyLoadTest {
+    private static final String[] LOCATIONS = {"chennai", "madurai"};
+
+    public static void main(String[] args) throws Exception {
+        String dir = Files.createTempDirectory("rental-lazy-").toString();
+        try {
+            Map<String, List<Payment>> expected = new HashMap<>();
+            Map<String, Double> collected = new HashMap<>();
+            System.setProperty("rental.payments.lazy", "false");
+            Main eager = new Main(dir);
+            eager.load();
+            populate(eager);
+            for (RentalAgreement agreement : eager.getAgreements()) {
+                expected.put(agreement.getId(), new ArrayList<>(agreement.getPayments()));
+            }
+            for (String location : LOCATIONS) collected.put(location, eager.getLocationRevenue(location).getCollected());
+            eager.close();
+
+            System.setProperty("rental.payments.lazy", "true");
+            verify(dir, expected, collected, "lazy load");
+            Main rewrite = new Main(dir);
+            rewrite.load();
+            rewrite.close();
+            verify(dir, expected, collected, "lazy load after a lazy save");
+            System.setProperty("rental.payments.lazy", "false");
+            verify(dir, expected, collected, "eager load after a lazy save");
+        } catch (AssertionError e) {
+            System.out.println("FAILED: " + e.getMessage() + " (data left in " + dir + ")");
+            System.exit(1);
+        }
+        RentalBenchmark.deleteRecursively(Paths.get(dir));
+        System.out.println("PASSED");
+    }
+
+    // Expired and active leases, with and without payments, on IDs containing brackets
+    private static void populate(Main rms) throws Exception {
+        LocalDate today = LocalDate.now();
+        String[] houseIds = {"H[1", "H]2", "H[3]", "H4"};
+        for (int i = 0; i < houseIds.length; i++) {
+            rms.addHouse(houseIds[i], LOCATIONS[i % LOCATIONS.length], 10000 + i, 2, "owner[" + i + "]");
+            rms.registerTenant("T[" + i, "tenant" + i, "contact", LOCATIONS[i % LOCATIONS.length]);
+        }
+        String expired = rms.bookHouse("H[1", "T[0", LocalDate.of(2020, 1, 1), LocalDate.of(2020, 12, 31), 1000);
+        rms.recordPayment(expired, LocalDate.of(2020, 1, 1), 1000.5);
+        rms.recordPayment(expired, LocalDate.of(2020, 2, 1), 999.25);
+        rms.bookHouse("H]2", "T[1", LocalDate.of(2021, 1, 1), LocalDate.of(2021, 6, 30), 500);
+        String active = rms.bookHouse("H[3]", "T[2", today.minusMonths(1), today.plusYears(1), 2000);
+        rms.recordPayment(active, today.minusMonths(1), 1500);
+        rms.bookHouse("H4", "T[3", today, today.plusYears(1), 0);
+    }
+
+    private static void verify(String dir, Map<String, List<Payment>> expected, Map<String, Double> collected,
+                               String phase) throws Exception {
+        Main rms = new Main(dir);
+        try {
+            rms.load();
+        } catch (Exception e) {
+            throw new AssertionError(phase + " failed: " + e, e);
+        }
+        check(rms.getAgreements().size() == expected.size(),
+              phase + ": " + rms.getAgreements().size() + " agreements, expected " + expected.size());
+        for (RentalAgreement agreement : rms.getAgreements()) {
+            List<Payment> payments = expected.get(agreement.getId());
+            check(payments != null, phase + ": unexpected agreement " + agreement.getId());
+            check(agreement.getHouse() != null && agreement.getTenant() != null,
+                  phase + ": " + agreement.getId() + " lost its house or tenant");
+            List<Payment> loaded = agreement.getPayments();
+            check(loaded.size() == payments.size(), phase + ": " + agreement.getId() + " has " + loaded.size() +
+                  " payments, expected " + payments.size());
+            for (int i = 0; i < loaded.size(); i++) {
+                check(loaded.get(i).getDate().equals(payments.get(i).getDate()) &&
+                      loaded.get(i).getAmount() == payments.get(i).getAmount(),
+                      phase + ": payment " + i + " of " + agreement.getId() + " differs");
+            }
+        }
+        for (String location : LOCATIONS) {
+            double total = rms.getLocationRevenue(location).getCollected();
+            check(Math.abs(total - collected.get(location)) < 0.001,
+                  phase + ": " + location + " collected " + total + ", expected " + collected.get(location));
+        }
+        System.out.println(phase + ": " + expected.size() + " agreements and their payments match");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+}
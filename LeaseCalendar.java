@@ -0,0 +1,111 @@
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// One agreement's occupancy of a house, as inclusive epoch days
+class Lease {
+    private final String agreementId;
+    private final String tenantId;
+    private final int startDay;
+    private final int endDay;
+
+    public Lease(String agreementId, String tenantId, int startDay, int endDay) {
+        this.agreementId = agreementId;
+        this.tenantId = tenantId;
+        this.startDay = startDay;
+        this.endDay = endDay;
+    }
+
+    public String getAgreementId() { return agreementId; }
+    public String getTenantId() { return tenantId; }
+    public int getStartDay() { return startDay; }
+    public int getEndDay() { return endDay; }
+
+    public boolean covers(int day) { return startDay <= day && day <= endDay; }
+}
+
+// Leases of every house, kept per house as disjoint intervals sorted by start day. Because the
+// intervals never overlap, the only lease that can overlap [from, to] is the last one starting on
+// or before to, so overlap checks and point lookups are a single floorEntry: O(log n) per house.
+// The days on which a house's occupancy changes (a lease starting, or the day after one ends)
+// are indexed too, so the sweep only visits houses with something to do.
+class LeaseCalendar {
+    private final Map<String, TreeMap<Integer, Lease>> byHouse = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, Set<String>> transitions = new ConcurrentSkipListMap<>();
+
+    public static int day(LocalDate date) { return (int) date.toEpochDay(); }
+
+    // Add a lease unless it overlaps an existing one on the same house
+    public boolean reserve(String houseId, Lease lease) {
+        TreeMap<Integer, Lease> leases = byHouse.computeIfAbsent(houseId, k -> new TreeMap<>());
+        synchronized (leases) {
+            if (overlapping(leases, lease.getStartDay(), lease.getEndDay()) != null) return false;
+            leases.put(lease.getStartDay(), lease);
+        }
+        addTransition(lease.getStartDay(), houseId);
+        if (lease.getEndDay() < Integer.MAX_VALUE) addTransition(lease.getEndDay() + 1, houseId);
+        return true;
+    }
+
+    // Undo a reservation whose booking could not be completed
+    public void cancel(String houseId, Lease lease) {
+        TreeMap<Integer, Lease> leases = byHouse.get(houseId);
+        if (leases == null) return;
+        synchronized (leases) {
+            leases.remove(lease.getStartDay(), lease);
+        }
+    }
+
+    public boolean isFree(String houseId, int fromDay, int toDay) {
+        TreeMap<Integer, Lease> leases = byHouse.get(houseId);
+        if (leases == null) return true;
+        synchronized (leases) {
+            return overlapping(leases, fromDay, toDay) == null;
+        }
+    }
+
+    // The lease occupying a house on a day, or null
+    public Lease leaseOn(String houseId, int day) {
+        TreeMap<Integer, Lease> leases = byHouse.get(houseId);
+        if (leases == null) return null;
+        synchronized (leases) {
+            return overlapping(leases, day, day);
+        }
+    }
+
+    public boolean hasLeases(String houseId) {
+        TreeMap<Integer, Lease> leases = byHouse.get(houseId);
+        if (leases == null) return false;
+        synchronized (leases) {
+            return !leases.isEmpty();
+        }
+    }
+
+    // Remove and return the houses whose occupancy changes on or before the day
+    public Set<String> takeTransitionsUpTo(int day) {
+        Set<String> houseIds = new HashSet<>();
+        Map.Entry<Integer, Set<String>> entry;
+        while ((entry = transitions.firstEntry()) != null && entry.getKey() <= day) {
+            if (transitions.remove(entry.getKey(), entry.getValue())) houseIds.addAll(entry.getValue());
+        }
+        return houseIds;
+    }
+
+    public void removeHouse(String houseId) { byHouse.remove(houseId); }
+
+    public void clear() {
+        byHouse.clear();
+        transitions.clear();
+    }
+
+    private void addTransition(int day, String houseId) {
+        transitions.computeIfAbsent(day, k -> ConcurrentHashMap.newKeySet()).add(houseId);
+    }
+
+    private static Lease overlapping(TreeMap<Integer, Lease> leases, int fromDay, int toDay) {
+        Map.Entry<Integer, Lease> candidate = leases.floorEntry(toDay);
+        if (candidate == null || candidate.getValue().getEndDay() < fromDay) return null;
+        return candidate.getValue();
+    }
+}
@@ -0,0 +1,21 @@
+import java.util.concurrent.locks.ReentrantLock;
+
+// Fixed pool of locks shared by key hash, so unrelated keys rarely contend
+// without keeping one lock object per house or agreement
+class LockStripes {
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    // The stripe count is rounded up to a power of two
+    public LockStripes(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) locks[i] = new ReentrantLock();
+        mask = size - 1;
+    }
+
+    public ReentrantLock lockFor(String key) {
+        int h = key.hashCode();
+        return locks[(h ^ (h >>> 16)) & mask];
+    }
+}
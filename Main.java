@@ -1,10 +1,22 @@
 
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 // House class to represent a rental property
 class House {
@@ -13,8 +25,9 @@ class House {
     private String owner;
     private double price;
     private int bedrooms;
-    private boolean isBooked;
-    private String tenantId;
+    // Written under the booking lock, read without locking by searches
+    private volatile boolean isBooked;
+    private volatile String tenantId;
 
     public House(String id, String location, double price, int bedrooms, String owner) {
         this.id = id;
@@ -49,12 +62,21 @@ class Tenant {
     private String name;
     private String contact;
     private String preferredLocation;
+    private double budget;
+    private int bedrooms;
 
     public Tenant(String id, String name, String contact, String preferredLocation) {
+        this(id, name, contact, preferredLocation, 0, 0);
+    }
+
+    // A budget or bedroom count of 0 means the tenant has no preference
+    public Tenant(String id, String name, String contact, String preferredLocation, double budget, int bedrooms) {
         this.id = id;
         this.name = name;
         this.contact = contact;
         this.preferredLocation = preferredLocation;
+        this.budget = budget;
+        this.bedrooms = bedrooms;
     }
 
     // Getters
@@ -62,6 +84,8 @@ class Tenant {
     public String getName() { return name; }
     public String getContact() { return contact; }
     public String getPreferredLocation() { return preferredLocation; }
+    public double getBudget() { return budget; }
+    public int getBedrooms() { return bedrooms; }
 }
 
 // RentalAgreement class to represent a lease agreement
@@ -72,7 +96,8 @@ class RentalAgreement {
     private LocalDate startDate;
     private LocalDate endDate;
     private double deposit;
-    private List<Payment> payments = new ArrayList<>();
+    private volatile PaymentLedger ledger = new PaymentLedger();
+    private PaymentArchive archive;
 
     public RentalAgreement(String id, House house, Tenant tenant, LocalDate startDate, LocalDate endDate, double deposit) {
         this.id = id;
@@ -90,12 +115,37 @@ class RentalAgreement {
     public LocalDate getStartDate() { return startDate; }
     public LocalDate getEndDate() { return endDate; }
     public double getDeposit() { return deposit; }
-    public List<Payment> getPayments() { return payments; }
-    public void addPayment(Payment payment) { payments.add(payment); }
+    public List<Payment> getPayments() { return getLedger().asList(); }
+    public void addPayment(Payment payment) { residentLedger().add(payment.getDate(), payment.getAmount()); }
+    public double getTotalPaid() { return getLedger().getTotalPaid(); }
+    public LocalDate getLastPaymentDate() { return getLedger().getLastPaymentDate(); }
+
+    // Payment history, paged in from the archive when it is not resident
+    public PaymentLedger getLedger() {
+        PaymentLedger resident = ledger;
+        return resident != null ? resident : archive.load(id);
+    }
+
+    // Leave the payment history on disk until it is accessed
+    public synchronized void archive(PaymentArchive archive) {
+        this.archive = archive;
+        this.ledger = null;
+    }
+
+    public boolean isArchived() { return ledger == null; }
+
+    // A new payment makes the history resident again
+    private synchronized PaymentLedger residentLedger() {
+        if (ledger == null) {
+            ledger = archive.load(id);
+            archive.release(id);
+        }
+        return ledger;
+    }
 
     // Calculate the next due date
     public LocalDate getNextDueDate() {
-        int monthsPaid = payments.size();
+        int monthsPaid = getLedger().size();
         return startDate.plusMonths(monthsPaid);
     }
 
@@ -122,14 +172,151 @@ class Payment {
 
 // Main class to manage the rental system
 public class Main {
-    private List<House> houses = new ArrayList<>();
-    private List<Tenant> tenants = new ArrayList<>();
-    private List<RentalAgreement> agreements = new ArrayList<>();
-    private final String HOUSES_FILE = "houses.txt";
-    private final String TENANTS_FILE = "tenants.txt";
-    private final String AGREEMENTS_FILE = "agreements.txt";
-    private int agreementCounter = 1;
+    private final HouseRepository houses = new HouseRepository();
+    private final TenantRepository tenants = new TenantRepository();
+    private final AgreementRepository agreements = new AgreementRepository();
+    private final HouseSearchIndex searchIndex = new HouseSearchIndex();
+    private final MatchCache matchCache = new MatchCache(Integer.getInteger("rental.cache.maxEntries", 10000),
+                                                         Long.getLong("rental.cache.maxWeight", 1_000_000L));
+    private final TenantMatcher matcher = new TenantMatcher(searchIndex);
+    private final RevenueAggregates revenue = new RevenueAggregates();
+    private final LeaseCalendar calendar = new LeaseCalendar();
+    private final String HOUSES_FILE;
+    private final String TENANTS_FILE;
+    private final String AGREEMENTS_FILE;
+    private final String WAL_FILE;
+    private final String SNAPSHOT_FILE;
+    private final AtomicInteger agreementCounter = new AtomicInteger(1);
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    // Mutations share the read lock; compaction takes the write lock to snapshot a consistent state
+    private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private final WriteAheadLog wal;
+    private final long compactThresholdBytes;
+    // Snapshot format chosen with -Drental.format=text|binary
+    private final boolean binaryFormat;
+    // Set with -Drental.payments.lazy=true to leave expired payment histories on disk (text format only)
+    private final PaymentArchive paymentArchive;
+    // Revenue from the archived histories, summed from their bytes while loading
+    private RevenueAggregates archivedRevenue;
+    // Set with -Drental.events.file=events.jsonl to publish every committed change
+    private final ChangeEventStream events;
+    private ScheduledExecutorService compactor;
+    private final RentalMetrics metrics = new RentalMetrics();
+
+    public Main() {
+        this(".");
+    }
+
+    // Keep all data files in the given directory
+    public Main(String dataDir) {
+        HOUSES_FILE = new File(dataDir, "houses.txt").getPath();
+        TENANTS_FILE = new File(dataDir, "tenants.txt").getPath();
+        AGREEMENTS_FILE = new File(dataDir, "agreements.txt").getPath();
+        WAL_FILE = new File(dataDir, "rental.wal").getPath();
+        SNAPSHOT_FILE = new File(dataDir, "rental.snap").getPath();
+        wal = new WriteAheadLog(WAL_FILE, DurabilityMode.parse(System.getProperty("rental.durability", "sync")),
+                                Integer.getInteger("rental.wal.fsyncBatch", 1));
+        compactThresholdBytes = Long.getLong("rental.wal.compactThresholdBytes", 4L << 20);
+        binaryFormat = "binary".equalsIgnoreCase(System.getProperty("rental.format", "text"));
+        paymentArchive = !binaryFormat && Boolean.getBoolean("rental.payments.lazy")
+                ? new PaymentArchive(Integer.getInteger("rental.payments.cacheSize", 1000)) : null;
+        String eventsFile = System.getProperty("rental.events.file");
+        try {
+            events = eventsFile == null ? null : new ChangeEventStream(Integer.getInteger("rental.events.capacity", 65536),
+                    Integer.getInteger("rental.events.batchSize", 512),
+                    Collections.singletonList(new JsonlEventSink(eventsFile)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open event file " + eventsFile, e);
+        }
+        metrics.registerGauge("houses", houses::size);
+        metrics.registerGauge("tenants", tenants::size);
+        metrics.registerGauge("agreements", agreements::size);
+        metrics.registerGauge("cache.entries", matchCache::size);
+        metrics.registerGauge("cache.hits", matchCache::getHits);
+        metrics.registerGauge("cache.misses", matchCache::getMisses);
+        metrics.registerGauge("cache.evictions", matchCache::getEvictions);
+        metrics.registerGauge("cache.invalidations", matchCache::getInvalidations);
+        if (paymentArchive != null) {
+            metrics.registerGauge("payments.archived", paymentArchive::size);
+            metrics.registerGauge("payments.cached", paymentArchive::getCached);
+            metrics.registerGauge("payments.loads", paymentArchive::getLoads);
+            metrics.registerGauge("payments.hits", paymentArchive::getHits);
+        }
+        if (events != null) {
+            metrics.registerGauge("events.published", events::getPublished);
+            metrics.registerGauge("events.dropped", events::getDropped);
+            metrics.registerGauge("events.written", events::getWritten);
+            metrics.registerGauge("events.failedBatches", events::getFailedBatches);
+        }
+        metrics.registerGauge("walBytes", () -> {
+            try {
+                return wal.size();
+            } catch (IOException e) {
+                return -1;
+            }
+        });
+    }
+
+    public RentalMetrics getMetrics() { return metrics; }
+
+    // Start the timed WAL fsync and the periodic compaction of the log into snapshots
+    public void startBackgroundTasks() {
+        metrics.registerMBean();
+        String dumpFile = System.getProperty("rental.metrics.dumpFile");
+        if (dumpFile != null) metrics.startDump(dumpFile, Long.getLong("rental.metrics.dumpIntervalSec", 60));
+        wal.startBackgroundSync(Long.getLong("rental.wal.fsyncIntervalMs", 100));
+        long interval = Long.getLong("rental.wal.compactIntervalSec", 60);
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "wal-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        compactor.scheduleWithFixedDelay(() -> {
+            try {
+                if (wal.size() >= compactThresholdBytes) compact();
+            } catch (IOException e) {
+                System.err.println("Compaction failed: " + e.getMessage());
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+        long sweepInterval = Long.getLong("rental.leases.sweepIntervalSec", 3600);
+        compactor.scheduleWithFixedDelay(() -> {
+            try {
+                sweepLeases();
+            } catch (RuntimeException e) {
+                System.err.println("Lease sweep failed: " + e.getMessage());
+            }
+        }, sweepInterval, sweepInterval, TimeUnit.SECONDS);
+    }
+
+    // Load all data from the snapshot in the configured format, then replay the log
+    public void load() throws IOException {
+        timed("load", () -> {
+            BinarySnapshot snapshot = new BinarySnapshot(SNAPSHOT_FILE);
+            // Without a binary snapshot yet, start from the text files; the first compaction converts them
+            if (!binaryFormat || !snapshot.exists()) {
+                loadHouses();
+                loadTenants();
+                loadAgreements();
+                return;
+            }
+            houses.clear();
+            tenants.clear();
+            agreements.clear();
+            snapshot.read();
+            for (House house : snapshot.getHouses()) houses.add(house);
+            for (Tenant tenant : snapshot.getTenants()) tenants.add(tenant);
+            for (RentalAgreement agreement : snapshot.getAgreements()) {
+                agreements.add(agreement);
+                trackAgreementId(agreement.getId());
+            }
+            replayHouses();
+            searchIndex.rebuild(houses.findAll());
+            matchCache.clear();
+            replayTenants();
+            replayAgreements();
+            indexAgreements();
+        });
+    }
 
     // Load houses from file
     public void loadHouses() throws IOException {
@@ -137,29 +324,41 @@ public class Main {
         try (BufferedReader reader = new BufferedReader(new FileReader(HOUSES_FILE))) {
             String line;
             while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 7) {
-                    House house = new House(parts[0], parts[1], Double.parseDouble(parts[2]), 
-                                            Integer.parseInt(parts[3]), parts[4]);
-                    house.setIsBooked(Boolean.parseBoolean(parts[5]));
-                    house.setTenantId(parts[6]);
-                    houses.add(house);
-                }
+                House house = parseHouse(line);
+                if (house != null) houses.add(house);
             }
         } catch (FileNotFoundException e) {
             // Start with empty list if file not found
         }
+        replayHouses();
+        searchIndex.rebuild(houses.findAll());
+        matchCache.clear();
+    }
+
+    // Replay house changes logged since the last snapshot
+    private void replayHouses() throws IOException {
+        wal.replay(EnumSet.of(WalRecordType.HOUSE_ADDED, WalRecordType.HOUSE_REMOVED), record -> {
+            if (record.getType() == WalRecordType.HOUSE_ADDED) {
+                House house = parseHouse(record.getPayload());
+                if (house != null) houses.add(house);
+            } else {
+                houses.remove(record.getPayload());
+            }
+        });
     }
 
     // Save houses to file
     public void saveHouses() throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(HOUSES_FILE))) {
-            for (House house : houses) {
-                writer.write(String.format("%s,%s,%.0f,%d,%s,%b,%s", 
-                    house.getId(), house.getLocation(), house.getPrice(), house.getBedrooms(), 
-                    house.getOwner(), house.isBooked(), house.getTenantId()));
-                writer.newLine();
-            }
+        long started = System.nanoTime();
+        try {
+            writeAtomically(HOUSES_FILE, writer -> {
+                for (House house : houses.findAll()) {
+                    writer.write(formatHouse(house));
+                    writer.newLine();
+                }
+            });
+        } finally {
+            metrics.recordIo("saveHouses", started);
         }
     }
 
@@ -169,196 +368,1009 @@ public class Main {
         try (BufferedReader reader = new BufferedReader(new FileReader(TENANTS_FILE))) {
             String line;
             while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 4) {
-                    tenants.add(new Tenant(parts[0], parts[1], parts[2], parts[3]));
-                }
+                Tenant tenant = parseTenant(line);
+                if (tenant != null) tenants.add(tenant);
             }
         } catch (FileNotFoundException e) {
             // Start with empty list if file not found
         }
+        replayTenants();
+    }
+
+    // Replay tenant registrations logged since the last snapshot
+    private void replayTenants() throws IOException {
+        wal.replay(EnumSet.of(WalRecordType.TENANT_REGISTERED), record -> {
+            Tenant tenant = parseTenant(record.getPayload());
+            if (tenant != null) tenants.add(tenant);
+        });
     }
 
     // Save tenants to file
     public void saveTenants() throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(TENANTS_FILE))) {
-            for (Tenant tenant : tenants) {
-                writer.write(tenant.getId() + "," + tenant.getName() + "," + 
-                             tenant.getContact() + "," + tenant.getPreferredLocation());
-                writer.newLine();
-            }
+        long started = System.nanoTime();
+        try {
+            writeAtomically(TENANTS_FILE, writer -> {
+                for (Tenant tenant : tenants.findAll()) {
+                    writer.write(formatTenant(tenant));
+                    writer.newLine();
+                }
+            });
+        } finally {
+            metrics.recordIo("saveTenants", started);
         }
     }
 
     // Load agreements from file
     public void loadAgreements() throws IOException {
         agreements.clear();
-        try (BufferedReader reader = new BufferedReader(new FileReader(AGREEMENTS_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                String id = parts[0];
-                String houseId = parts[1];
-                String tenantId = parts[2];
-                LocalDate startDate = LocalDate.parse(parts[3], dateFormatter);
-                LocalDate endDate = LocalDate.parse(parts[4], dateFormatter);
-                double deposit = Double.parseDouble(parts[5]);
-                House house = findHouseById(houseId);
-                Tenant tenant = findTenantById(tenantId);
-                RentalAgreement agreement = new RentalAgreement(id, house, tenant, startDate, endDate, deposit);
-                if (parts.length > 6) {
-                    String paymentsStr = parts[6].replace("[", "").replace("]", "");
-                    if (!paymentsStr.isEmpty()) {
-                        String[] paymentParts = paymentsStr.split(";");
-                        for (String payment : paymentParts) {
-                            String[] paymentDetails = payment.split(":");
-                            LocalDate paymentDate = LocalDate.parse(paymentDetails[0], dateFormatter);
-                            double amount = Double.parseDouble(paymentDetails[1]);
-                            agreement.addPayment(new Payment(paymentDate, amount));
-                        }
+        if (paymentArchive != null) {
+            loadAgreementsLazily();
+        } else {
+            try (BufferedReader reader = new BufferedReader(new FileReader(AGREEMENTS_FILE))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    RentalAgreement agreement = parseAgreement(parts);
+                    if (parts.length > 6) addPayments(agreement, parts[6].replace("[", "").replace("]", ""));
+                    agreements.add(agreement);
+                    trackAgreementId(agreement.getId());
+                }
+            } catch (FileNotFoundException e) {
+                // Start with empty list if file not found
+            }
+        }
+        replayAgreements();
+        indexAgreements();
+    }
+
+    // Load agreements, leaving the payment history of every expired lease in the file.
+    // Lines are split on raw bytes so the offset of each history is known exactly.
+    private void loadAgreementsLazily() throws IOException {
+        LocalDate today = LocalDate.now();
+        Map<String, PaymentArchive.Segment> segments = new HashMap<>();
+        archivedRevenue = new RevenueAggregates();
+        try (InputStream in = new FileInputStream(AGREEMENTS_FILE)) {
+            byte[] buffer = new byte[1 << 16];
+            byte[] line = new byte[256];
+            int length = 0;
+            long lineStart = 0;
+            long position = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++, position++) {
+                    byte b = buffer[i];
+                    if (b != '\n') {
+                        if (length == line.length) line = Arrays.copyOf(line, length * 2);
+                        line[length++] = b;
+                        continue;
                     }
+                    addAgreementLazily(line, length, lineStart, today, segments);
+                    length = 0;
+                    lineStart = position + 1;
                 }
-                agreements.add(agreement);
-                int counter = Integer.parseInt(id.substring(2)) + 1;
-                if (counter > agreementCounter) agreementCounter = counter;
             }
+            addAgreementLazily(line, length, lineStart, today, segments);
         } catch (FileNotFoundException e) {
             // Start with empty list if file not found
         }
+        paymentArchive.open(AGREEMENTS_FILE, segments);
+    }
+
+    private void addAgreementLazily(byte[] line, int length, long lineStart, LocalDate today,
+                                    Map<String, PaymentArchive.Segment> segments) {
+        if (length > 0 && line[length - 1] == '\r') length--;
+        if (length == 0) return;
+        // The history follows the sixth comma, as in the eager split; IDs may contain brackets
+        int open = 0;
+        for (int commas = 0; open < length && commas < 6; open++) {
+            if (line[open] == ',') commas++;
+        }
+        if (open < length && line[open] != '[') throw new IllegalArgumentException("Malformed agreement line");
+        int close = length - 1;
+        while (close > open && line[close] != ']') close--;
+        if (close <= open) close = length;
+        String[] parts = new String(line, 0, open, StandardCharsets.UTF_8).split(",");
+        RentalAgreement agreement = parseAgreement(parts);
+        if (open < length && agreement.getEndDate().isBefore(today)) {
+            int payments = archivedRevenue.addPayments(agreement.getHouse(), line, open + 1, close);
+            segments.put(agreement.getId(), new PaymentArchive.Segment(lineStart + open + 1, close - open - 1, payments));
+            agreement.archive(paymentArchive);
+        } else if (open < length) {
+            addPayments(agreement, new String(line, open + 1, close - open - 1, StandardCharsets.UTF_8));
+        }
+        agreements.add(agreement);
+        trackAgreementId(agreement.getId());
+    }
+
+    // Parse a "date:amount;date:amount" payment history onto an agreement's ledger
+    private void addPayments(RentalAgreement agreement, String payments) {
+        if (payments.isEmpty()) return;
+        for (String payment : payments.split(";")) {
+            String[] paymentDetails = payment.split(":");
+            LocalDate paymentDate = LocalDate.parse(paymentDetails[0], dateFormatter);
+            double amount = Double.parseDouble(paymentDetails[1]);
+            agreement.getLedger().add(paymentDate, amount);
+        }
+    }
+
+    // Build the lease calendar and revenue totals from the loaded agreements, and bring every
+    // house's booked flag in line with the lease covering today
+    private void indexAgreements() {
+        calendar.clear();
+        for (RentalAgreement agreement : agreements.findAll()) {
+            if (agreement.getHouse() == null || agreement.getTenant() == null) continue;
+            // Overlapping leases from before the calendar existed keep their agreement but not their slot
+            calendar.reserve(agreement.getHouse().getId(), leaseOf(agreement));
+        }
+        int today = LeaseCalendar.day(LocalDate.now());
+        for (House house : houses.findAll()) applyLeases(house, today);
+        calendar.takeTransitionsUpTo(today);
+        revenue.rebuild(houses.findAll(), agreements.findAll(), archivedRevenue, archivedRevenue == null ? null : paymentArchive);
+        archivedRevenue = null;
+    }
+
+    private static Lease leaseOf(RentalAgreement agreement) {
+        return new Lease(agreement.getId(), agreement.getTenant().getId(),
+                         LeaseCalendar.day(agreement.getStartDate()), LeaseCalendar.day(agreement.getEndDate()));
+    }
+
+    // Mark a house booked by the lease covering the day, or release it when its leases do not
+    // cover the day. Houses marked booked without any lease on record are left alone.
+    // Returns whether the house changed.
+    private boolean applyLeases(House house, int day) {
+        Lease lease = calendar.leaseOn(house.getId(), day);
+        if (lease != null) {
+            if (house.isBooked() && lease.getTenantId().equals(house.getTenantId())) return false;
+            if (!house.isBooked()) {
+                searchIndex.remove(house);
+                house.setIsBooked(true);
+                revenue.markBooked(house);
+            }
+            house.setTenantId(lease.getTenantId());
+        } else {
+            if (!house.isBooked() || !calendar.hasLeases(house.getId())) return false;
+            house.setIsBooked(false);
+            house.setTenantId("");
+            searchIndex.add(house);
+            revenue.markReleased(house);
+        }
+        matchCache.invalidate(HouseSearchIndex.normalize(house.getLocation()));
+        return true;
+    }
+
+    // Release houses whose lease has ended and occupy those whose next lease has started, and stop
+    // counting the deposits of ended leases as held.
+    // Only houses with a lease starting or ending since the last sweep are visited.
+    public int sweepLeases() {
+        return timed("sweepLeases", () -> {
+            stateLock.writeLock().lock();
+            try {
+                int today = LeaseCalendar.day(LocalDate.now());
+                int changed = 0;
+                for (String houseId : calendar.takeTransitionsUpTo(today)) {
+                    House house = houses.findById(houseId);
+                    if (house != null && applyLeases(house, today)) changed++;
+                }
+                revenue.releaseDeposits(today);
+                return changed;
+            } finally {
+                stateLock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Replay bookings and payments logged since the last snapshot
+    private void replayAgreements() throws IOException {
+        wal.replay(EnumSet.of(WalRecordType.HOUSE_BOOKED, WalRecordType.PAYMENT_RECORDED), record -> {
+            String[] parts = record.getPayload().split(",");
+            if (record.getType() == WalRecordType.HOUSE_BOOKED) {
+                if (agreements.contains(parts[0])) return;
+                RentalAgreement agreement = parseAgreement(parts);
+                agreements.add(agreement);
+                trackAgreementId(agreement.getId());
+                // A house removed after this booking was logged leaves nothing to mark booked
+                if (agreement.getHouse() == null || agreement.getTenant() == null) return;
+                searchIndex.remove(agreement.getHouse());
+                agreement.getHouse().setIsBooked(true);
+                agreement.getHouse().setTenantId(agreement.getTenant().getId());
+            } else {
+                RentalAgreement agreement = findAgreementById(parts[0]);
+                // The sequence number skips payments already folded into the snapshot
+                if (agreement != null && agreement.getPayments().size() == Integer.parseInt(parts[1])) {
+                    agreement.addPayment(new Payment(LocalDate.parse(parts[2], dateFormatter),
+                                                     Double.parseDouble(parts[3])));
+                }
+            }
+        });
     }
 
     // Save agreements to file
     public void saveAgreements() throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(AGREEMENTS_FILE))) {
-            for (RentalAgreement agreement : agreements) {
-                StringBuilder sb = new StringBuilder();
-                sb.append(agreement.getId()).append(",")
-                  .append(agreement.getHouse().getId()).append(",")
-                  .append(agreement.getTenant().getId()).append(",")
-                  .append(agreement.getStartDate().format(dateFormatter)).append(",")
-                  .append(agreement.getEndDate().format(dateFormatter)).append(",")
-                  .append(agreement.getDeposit());
-                List<Payment> payments = agreement.getPayments();
-                sb.append(",[");
-                if (!payments.isEmpty()) {
-                    for (int i = 0; i < payments.size(); i++) {
-                        Payment p = payments.get(i);
-                        sb.append(p.getDate().format(dateFormatter)).append(":").append(p.getAmount());
-                        if (i < payments.size() - 1) sb.append(";");
-                    }
+        long started = System.nanoTime();
+        try {
+            if (paymentArchive != null) {
+                saveAgreementsWithArchive();
+                return;
+            }
+            writeAtomically(AGREEMENTS_FILE, writer -> {
+                for (RentalAgreement agreement : agreements.findAll()) {
+                    writer.write(formatAgreement(agreement) + ",[" + formatPayments(agreement.getLedger()) + "]");
+                    writer.newLine();
+                }
+            });
+        } finally {
+            metrics.recordIo("saveAgreements", started);
+        }
+    }
+
+    // Like writeAtomically, but counting bytes so the offset of every history in the new file is
+    // known; archived histories are copied from the current file as raw bytes. Leases that have
+    // expired since the last save are archived too once the new file is in place.
+    private void saveAgreementsWithArchive() throws IOException {
+        File temp = new File(AGREEMENTS_FILE + ".tmp");
+        byte[] newline = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+        LocalDate today = LocalDate.now();
+        Map<String, PaymentArchive.Segment> segments = new HashMap<>();
+        List<RentalAgreement> expired = new ArrayList<>();
+        try (FileOutputStream file = new FileOutputStream(temp);
+             OutputStream out = new BufferedOutputStream(file, 1 << 16)) {
+            long offset = 0;
+            for (RentalAgreement agreement : agreements.findAll()) {
+                byte[] head = (formatAgreement(agreement) + ",[").getBytes(StandardCharsets.UTF_8);
+                byte[] payments;
+                int count;
+                if (agreement.isArchived()) {
+                    payments = paymentArchive.raw(agreement.getId());
+                    count = PaymentArchive.countPayments(payments);
+                } else {
+                    PaymentLedger ledger = agreement.getLedger();
+                    count = ledger.size();
+                    payments = formatPayments(ledger).getBytes(StandardCharsets.UTF_8);
+                    if (agreement.getEndDate().isBefore(today)) expired.add(agreement);
                 }
-                sb.append("]");
-                writer.write(sb.toString());
-                writer.newLine();
+                if (agreement.isArchived() || agreement.getEndDate().isBefore(today)) {
+                    segments.put(agreement.getId(), new PaymentArchive.Segment(offset + head.length, payments.length, count));
+                }
+                out.write(head);
+                out.write(payments);
+                out.write(']');
+                out.write(newline);
+                offset += head.length + payments.length + 1 + newline.length;
             }
+            out.flush();
+            file.getFD().sync();
+        }
+        moveIntoPlace(temp.toPath(), Paths.get(AGREEMENTS_FILE));
+        paymentArchive.open(AGREEMENTS_FILE, segments);
+        for (RentalAgreement agreement : expired) agreement.archive(paymentArchive);
+    }
+
+    interface SnapshotBody {
+        void write(BufferedWriter writer) throws IOException;
+    }
+
+    // Write a snapshot file beside the target, fsync it and rename it into place,
+    // so a crash at any point leaves either the complete old file or the complete new one
+    private static void writeAtomically(String file, SnapshotBody body) throws IOException {
+        File temp = new File(file + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp);
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out))) {
+            body.write(writer);
+            writer.flush();
+            out.getFD().sync();
         }
+        moveIntoPlace(temp.toPath(), Paths.get(file));
     }
 
+    // Rename a synced temp file over the target and fsync the directory, so the rename itself is
+    // on disk before compaction truncates the log that the old file relied on
+    static void moveIntoPlace(Path temp, Path target) throws IOException {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Path dir = target.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (AccessDeniedException e) {
+            // Windows cannot open a directory; NTFS journals the rename itself
+        }
+    }
+
+    private String formatPayments(PaymentLedger ledger) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < ledger.size(); i++) {
+            if (i > 0) sb.append(";");
+            sb.append(ledger.getDate(i).format(dateFormatter)).append(":").append(ledger.getAmount(i));
+        }
+        return sb.toString();
+    }
+
+    // Fold the log into fresh snapshot files and start a new, empty log
+    public void compact() throws IOException {
+        timed("compact", () -> {
+            stateLock.writeLock().lock();
+            try {
+                if (binaryFormat) {
+                    writeBinarySnapshot();
+                } else {
+                    saveHouses();
+                    saveTenants();
+                    saveAgreements();
+                }
+                wal.reset();
+            } finally {
+                stateLock.writeLock().unlock();
+            }
+        });
+    }
+
+    private void writeBinarySnapshot() throws IOException {
+        long started = System.nanoTime();
+        try {
+            new BinarySnapshot(SNAPSHOT_FILE).write(houses.findAll(), tenants.findAll(), agreements.findAll());
+        } finally {
+            metrics.recordIo("snapshot.write", started);
+        }
+    }
+
+    // Write the loaded data as a binary snapshot; text files stay in sync so either format can start
+    public void convertToBinary() throws IOException {
+        stateLock.writeLock().lock();
+        try {
+            saveHouses();
+            saveTenants();
+            saveAgreements();
+            writeBinarySnapshot();
+            wal.reset();
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    // Compact and release the log on shutdown
+    public void close() throws IOException {
+        if (compactor != null) compactor.shutdown();
+        metrics.stopDump();
+        compact();
+        wal.close();
+        if (paymentArchive != null) paymentArchive.close();
+        if (events != null) events.close();
+    }
+
+    interface TimedBody<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    interface TimedAction<E extends Exception> {
+        void run() throws E;
+    }
+
+    // Run an operation under the metrics of the given name, counting it as failed if it throws
+    private <T, E extends Exception> T timed(String name, TimedBody<T, E> body) throws E {
+        long started = metrics.begin();
+        boolean failed = true;
+        try {
+            T result = body.run();
+            failed = false;
+            return result;
+        } finally {
+            metrics.end(name, started, failed);
+        }
+    }
+
+    private <E extends Exception> void timed(String name, TimedAction<E> action) throws E {
+        timed(name, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // Hand a committed change to the event stream, if one is configured; never blocks
+    private void publish(ChangeEvent event) {
+        if (events != null) events.publish(event);
+    }
+
+    // Append to the log, timing the write as I/O of the current operation
+    private void log(WalRecordType type, String payload) throws IOException {
+        long started = System.nanoTime();
+        try {
+            wal.append(type, payload);
+        } finally {
+            metrics.recordIo("wal.append", started);
+        }
+    }
+
+    private void logAll(List<WalRecord> records) throws IOException {
+        long started = System.nanoTime();
+        try {
+            wal.appendAll(records);
+        } finally {
+            metrics.recordIo("wal.appendAll", started);
+        }
+    }
+
+    // Text fields end up in the comma separated data files and the log, so blanks, commas and
+    // line breaks are rejected; the menu, the HTTP API and bulk import all pass through here
+    static String requireText(String name, String value) {
+        if (value == null || value.trim().isEmpty()) throw new IllegalArgumentException("Missing " + name + ".");
+        if (value.indexOf(',') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Invalid " + name + " '" + value + "'.");
+        }
+        return value;
+    }
+
+    private static void validateHouse(House house) {
+        requireText("id", house.getId());
+        requireText("location", house.getLocation());
+        requireText("owner", house.getOwner());
+        if (house.getPrice() < 0) throw new IllegalArgumentException("Price cannot be negative.");
+    }
+
+    private static void validateTenant(Tenant tenant) {
+        requireText("id", tenant.getId());
+        requireText("name", tenant.getName());
+        requireText("contact", tenant.getContact());
+        requireText("preferredLocation", tenant.getPreferredLocation());
+        if (tenant.getBudget() < 0) throw new IllegalArgumentException("Budget cannot be negative.");
+    }
+
+    // Record formats shared by the snapshot files and the write-ahead log
+    private String formatHouse(House house) {
+        return String.format("%s,%s,%.0f,%d,%s,%b,%s",
+            house.getId(), house.getLocation(), house.getPrice(), house.getBedrooms(),
+            house.getOwner(), house.isBooked(), house.getTenantId());
+    }
+
+    private House parseHouse(String line) {
+        String[] parts = line.split(",", -1);
+        if (parts.length != 7) return null;
+        House house = new House(parts[0], parts[1], Double.parseDouble(parts[2]),
+                                Integer.parseInt(parts[3]), parts[4]);
+        house.setIsBooked(Boolean.parseBoolean(parts[5]));
+        house.setTenantId(parts[6]);
+        return house;
+    }
+
+    // Budget and bedrooms are only written when the tenant has preferences, keeping the old 4-field lines
+    private String formatTenant(Tenant tenant) {
+        String line = tenant.getId() + "," + tenant.getName() + "," +
+                      tenant.getContact() + "," + tenant.getPreferredLocation();
+        if (tenant.getBudget() > 0 || tenant.getBedrooms() > 0) {
+            // Full precision, as the binary snapshot keeps cents
+            line += "," + tenant.getBudget() + "," + tenant.getBedrooms();
+        }
+        return line;
+    }
+
+    private Tenant parseTenant(String line) {
+        String[] parts = line.split(",");
+        if (parts.length == 4) return new Tenant(parts[0], parts[1], parts[2], parts[3]);
+        if (parts.length != 6) return null;
+        return new Tenant(parts[0], parts[1], parts[2], parts[3], Double.parseDouble(parts[4]), Integer.parseInt(parts[5]));
+    }
+
+    // Agreement fields without the payment list; a missing house or tenant is written as an empty ID,
+    // as the binary snapshot does
+    private String formatAgreement(RentalAgreement agreement) {
+        return agreement.getId() + "," + (agreement.getHouse() == null ? "" : agreement.getHouse().getId()) + "," +
+               (agreement.getTenant() == null ? "" : agreement.getTenant().getId()) + "," +
+               agreement.getStartDate().format(dateFormatter) + "," +
+               agreement.getEndDate().format(dateFormatter) + "," + agreement.getDeposit();
+    }
+
+    private RentalAgreement parseAgreement(String[] parts) {
+        LocalDate startDate = LocalDate.parse(parts[3], dateFormatter);
+        LocalDate endDate = LocalDate.parse(parts[4], dateFormatter);
+        double deposit = Double.parseDouble(parts[5]);
+        return new RentalAgreement(parts[0], findHouseById(parts[1]), findTenantById(parts[2]),
+                                   startDate, endDate, deposit);
+    }
+
+    private void trackAgreementId(String id) {
+        int counter = Integer.parseInt(id.substring(2)) + 1;
+        agreementCounter.accumulateAndGet(counter, Math::max);
+    }
+
+    // Read-only views of the loaded data
+    public Collection<House> getHouses() { return Collections.unmodifiableCollection(houses.findAll()); }
+    public Collection<Tenant> getTenants() { return Collections.unmodifiableCollection(tenants.findAll()); }
+    public Collection<RentalAgreement> getAgreements() { return Collections.unmodifiableCollection(agreements.findAll()); }
+
     // Find house by ID
     private House findHouseById(String id) {
-        return houses.stream().filter(h -> h.getId().equals(id)).findFirst().orElse(null);
+        return houses.findById(id);
     }
 
     // Find tenant by ID
     private Tenant findTenantById(String id) {
-        return tenants.stream().filter(t -> t.getId().equals(id)).findFirst().orElse(null);
+        return tenants.findById(id);
+    }
+
+    // Find agreement by ID
+    private RentalAgreement findAgreementById(String id) {
+        return agreements.findById(id);
     }
 
+    // Running revenue and occupancy totals for an owner or a location
+    public RevenueTotals getOwnerRevenue(String owner) { return revenue.forOwner(owner); }
+    public RevenueTotals getLocationRevenue(String location) { return revenue.forLocation(location); }
+
     // Add house
     public void addHouse(String id, String location, double price, int bedrooms, String owner) throws Exception {
-        if (price < 0) throw new IllegalArgumentException("Price cannot be negative.");
-        if (houses.stream().anyMatch(h -> h.getId().equals(id))) throw new Exception("House ID already exists.");
-        houses.add(new House(id, location, price, bedrooms, owner));
-        saveHouses();
+        timed("addHouse", () -> {
+            House house = new House(id, location, price, bedrooms, owner);
+            validateHouse(house);
+            stateLock.readLock().lock();
+            try {
+                if (!houses.add(house)) throw new Exception("House ID already exists.");
+                try {
+                    log(WalRecordType.HOUSE_ADDED, formatHouse(house));
+                } catch (IOException e) {
+                    houses.remove(id);
+                    throw e;
+                }
+                searchIndex.add(house);
+                revenue.addHouse(house);
+                matchCache.invalidate(HouseSearchIndex.normalize(house.getLocation()));
+                publish(ChangeEvent.houseAdded(house));
+            } finally {
+                stateLock.readLock().unlock();
+            }
+        });
     }
 
     // Remove house
     public void removeHouse(String id) throws Exception {
-        House house = houses.stream().filter(h -> h.getId().equals(id)).findFirst()
-                           .orElseThrow(() -> new Exception("House not found."));
-        if (house.isBooked()) throw new Exception("Cannot remove booked house.");
-        houses.remove(house);
-        saveHouses();
+        timed("removeHouse", () -> {
+            stateLock.readLock().lock();
+            try {
+                House house = houses.findById(id);
+                if (house == null) throw new Exception("House not found.");
+                if (house.isBooked()) throw new Exception("Cannot remove booked house.");
+                // Agreements, including expired ones, keep referring to their house in the data files
+                if (!agreements.findByHouse(id).isEmpty()) throw new Exception("Cannot remove house with rental agreements.");
+                log(WalRecordType.HOUSE_REMOVED, id);
+                houses.remove(id);
+                calendar.removeHouse(id);
+                searchIndex.remove(house);
+                revenue.removeHouse(house);
+                matchCache.invalidate(HouseSearchIndex.normalize(house.getLocation()));
+                publish(ChangeEvent.houseRemoved(house));
+            } finally {
+                stateLock.readLock().unlock();
+            }
+        });
     }
 
     // Search houses
     public List<House> searchHouses(String location, double maxPrice) {
-        return houses.stream()
-                     .filter(h -> !h.isBooked())
-                     .filter(h -> h.getLocation().equalsIgnoreCase(location) && h.getPrice() <= maxPrice)
-                     .collect(Collectors.toList());
+        return searchHouses(location, maxPrice, 0, 0, Integer.MAX_VALUE);
+    }
+
+    // Search houses with a minimum bedroom count (0 for any) and paging
+    public List<House> searchHouses(String location, double maxPrice, int minBedrooms, int offset, int limit) {
+        return timed("searchHouses", () -> {
+            String bucket = HouseSearchIndex.normalize(location);
+            String key = "s:" + bucket + "|" + maxPrice + "|" + minBedrooms + "|" + offset + "|" + limit;
+            return matchCache.get(key, bucket, () -> searchIndex.search(location, maxPrice, minBedrooms, offset, limit));
+        });
+    }
+
+    // Houses in a location with no lease between from and to (inclusive), cheapest first
+    public List<House> findAvailableHouses(String location, LocalDate from, LocalDate to) {
+        return timed("findAvailableHouses", () -> {
+            if (to.isBefore(from)) throw new IllegalArgumentException("End date cannot be before start date.");
+            int fromDay = LeaseCalendar.day(from);
+            int toDay = LeaseCalendar.day(to);
+            List<House> available = new ArrayList<>();
+            for (House house : houses.findByLocation(location)) {
+                if (house.isBooked() && !calendar.hasLeases(house.getId())) continue;
+                if (calendar.isFree(house.getId(), fromDay, toDay)) available.add(house);
+            }
+            available.sort(Comparator.comparingDouble(House::getPrice).thenComparing(House::getId));
+            return available;
+        });
     }
 
     // Register tenant
     public void registerTenant(String id, String name, String contact, String preferredLocation) throws Exception {
-        if (tenants.stream().anyMatch(t -> t.getId().equals(id))) throw new Exception("Tenant ID already exists.");
-        tenants.add(new Tenant(id, name, contact, preferredLocation));
-        saveTenants();
+        registerTenant(id, name, contact, preferredLocation, 0, 0);
+    }
+
+    // Register tenant with a budget and bedroom count for ranked matching (0 for no preference)
+    public void registerTenant(String id, String name, String contact, String preferredLocation,
+                               double budget, int bedrooms) throws Exception {
+        timed("registerTenant", () -> {
+            Tenant tenant = new Tenant(id, name, contact, preferredLocation, budget, bedrooms);
+            validateTenant(tenant);
+            stateLock.readLock().lock();
+            try {
+                if (!tenants.add(tenant)) throw new Exception("Tenant ID already exists.");
+                try {
+                    log(WalRecordType.TENANT_REGISTERED, formatTenant(tenant));
+                } catch (IOException e) {
+                    tenants.remove(id);
+                    throw e;
+                }
+                publish(ChangeEvent.tenantRegistered(tenant));
+            } finally {
+                stateLock.readLock().unlock();
+            }
+        });
     }
 
     // Match tenant with houses
     public List<House> matchTenantWithHouses(String tenantId) throws Exception {
-        Tenant tenant = tenants.stream().filter(t -> t.getId().equals(tenantId)).findFirst()
-                              .orElseThrow(() -> new Exception("Tenant not found."));
-        return houses.stream()
-                     .filter(h -> !h.isBooked())
-                     .filter(h -> h.getLocation().equalsIgnoreCase(tenant.getPreferredLocation()))
-                     .collect(Collectors.toList());
-    }
-
-    // Book house
-    public void bookHouse(String houseId, String tenantId, LocalDate startDate, LocalDate endDate, double deposit) throws Exception {
-        House house = houses.stream().filter(h -> h.getId().equals(houseId)).findFirst()
-                           .orElseThrow(() -> new Exception("House not found."));
-        if (house.isBooked()) throw new Exception("House already booked.");
-        Tenant tenant = tenants.stream().filter(t -> t.getId().equals(tenantId)).findFirst()
-                              .orElseThrow(() -> new Exception("Tenant not found."));
-        if (deposit < 0) throw new IllegalArgumentException("Deposit cannot be negative.");
-        String agreementId = "RA" + agreementCounter++;
-        RentalAgreement agreement = new RentalAgreement(agreementId, house, tenant, startDate, endDate, deposit);
-        agreements.add(agreement);
-        house.setIsBooked(true);
-        house.setTenantId(tenantId);
-        saveHouses();
-        saveAgreements();
+        return timed("matchTenantWithHouses", () -> {
+            Tenant tenant = tenants.findById(tenantId);
+            if (tenant == null) throw new Exception("Tenant not found.");
+            String bucket = HouseSearchIndex.normalize(tenant.getPreferredLocation());
+            return matchCache.get("t:" + tenantId, bucket, () ->
+                searchIndex.search(tenant.getPreferredLocation(), Double.MAX_VALUE, 0, 0, Integer.MAX_VALUE));
+        });
+    }
+
+    // The k best available houses for a tenant, ranked by location, price and bedroom fit
+    public List<ScoredHouse> rankHousesForTenant(String tenantId, int k) throws Exception {
+        return timed("rankHousesForTenant", () -> {
+            Tenant tenant = tenants.findById(tenantId);
+            if (tenant == null) throw new Exception("Tenant not found.");
+            return matcher.rank(tenant, k);
+        });
+    }
+
+    // Rank houses for every tenant without a current agreement, spread across all cores
+    public Map<String, List<ScoredHouse>> rankUnassignedTenants(int k) {
+        return timed("rankUnassignedTenants", () -> {
+            LocalDate today = LocalDate.now();
+            List<Tenant> unassigned = new ArrayList<>();
+            for (Tenant tenant : tenants.findAll()) {
+                boolean assigned = false;
+                for (RentalAgreement agreement : agreements.findByTenant(tenant.getId())) {
+                    if (!agreement.getEndDate().isBefore(today)) assigned = true;
+                }
+                if (!assigned) unassigned.add(tenant);
+            }
+            return matcher.rankAll(unassigned, k);
+        });
+    }
+
+    // Book house and return the new agreement ID
+    public String bookHouse(String houseId, String tenantId, LocalDate startDate, LocalDate endDate, double deposit) throws Exception {
+        return timed("bookHouse", () -> {
+            stateLock.readLock().lock();
+            try {
+                House house = houses.findById(houseId);
+                if (house == null) throw new Exception("House not found.");
+                // A house marked booked without a lease on record has no known end date
+                if (house.isBooked() && !calendar.hasLeases(houseId)) throw new Exception("House already booked.");
+                Tenant tenant = tenants.findById(tenantId);
+                if (tenant == null) throw new Exception("Tenant not found.");
+                if (deposit < 0) throw new IllegalArgumentException("Deposit cannot be negative.");
+                if (endDate.isBefore(startDate)) throw new IllegalArgumentException("End date cannot be before start date.");
+                int startDay = LeaseCalendar.day(startDate);
+                int endDay = LeaseCalendar.day(endDate);
+                if (!calendar.isFree(houseId, startDay, endDay)) throw new Exception("House already booked for those dates.");
+                String agreementId = "RA" + agreementCounter.getAndIncrement();
+                Lease lease = new Lease(agreementId, tenantId, startDay, endDay);
+                if (!calendar.reserve(houseId, lease)) throw new Exception("House already booked for those dates.");
+                RentalAgreement agreement = new RentalAgreement(agreementId, house, tenant, startDate, endDate, deposit);
+                try {
+                    log(WalRecordType.HOUSE_BOOKED, formatAgreement(agreement));
+                } catch (IOException e) {
+                    calendar.cancel(houseId, lease);
+                    throw e;
+                }
+                // Counted before it becomes visible, so no payment can be counted twice
+                revenue.addAgreement(agreement);
+                // Published before it becomes visible, so no PaymentRecorded can precede its HouseBooked
+                publish(ChangeEvent.houseBooked(agreement));
+                agreements.add(agreement);
+                // A lease starting later leaves the house available until the sweep reaches its start
+                applyLeases(house, LeaseCalendar.day(LocalDate.now()));
+                return agreementId;
+            } finally {
+                stateLock.readLock().unlock();
+            }
+        });
     }
 
     // Record payment
     public void recordPayment(String agreementId, LocalDate date, double amount) throws Exception {
-        RentalAgreement agreement = agreements.stream().filter(a -> a.getId().equals(agreementId)).findFirst()
-                                             .orElseThrow(() -> new Exception("Agreement not found."));
-        agreement.addPayment(new Payment(date, amount));
-        saveAgreements();
+        timed("recordPayment", () -> {
+            stateLock.readLock().lock();
+            try {
+                RentalAgreement agreement = agreements.findById(agreementId);
+                if (agreement == null) throw new Exception("Agreement not found.");
+                log(WalRecordType.PAYMENT_RECORDED, agreementId + "," + agreement.getPayments().size() + "," +
+                           date.format(dateFormatter) + "," + amount);
+                agreement.addPayment(new Payment(date, amount));
+                revenue.addPayment(agreement, date, BinarySnapshot.toCents(amount));
+                publish(ChangeEvent.paymentRecorded(agreement, date, amount));
+            } finally {
+                stateLock.readLock().unlock();
+            }
+        });
+    }
+
+    // Add a batch of houses with a single log write; returns the rejection reason by batch index
+    public Map<Integer, String> addHouses(List<House> batch) throws IOException {
+        return timed("addHouses", () -> {
+            Map<Integer, String> rejected = new HashMap<>();
+            List<House> accepted = new ArrayList<>();
+            List<WalRecord> records = new ArrayList<>();
+            stateLock.writeLock().lock();
+            try {
+                for (int i = 0; i < batch.size(); i++) {
+                    House house = batch.get(i);
+                    try {
+                        validateHouse(house);
+                    } catch (IllegalArgumentException e) {
+                        rejected.put(i, e.getMessage());
+                        continue;
+                    }
+                    if (!houses.add(house)) {
+                        rejected.put(i, "House ID already exists.");
+                    } else {
+                        accepted.add(house);
+                        records.add(new WalRecord(WalRecordType.HOUSE_ADDED, formatHouse(house)));
+                    }
+                }
+                try {
+                    logAll(records);
+                } catch (IOException e) {
+                    for (House house : accepted) houses.remove(house.getId());
+                    throw e;
+                }
+                Set<String> changed = new HashSet<>();
+                for (House house : accepted) {
+                    searchIndex.add(house);
+                    revenue.addHouse(house);
+                    changed.add(HouseSearchIndex.normalize(house.getLocation()));
+                }
+                for (String location : changed) matchCache.invalidate(location);
+                for (House house : accepted) publish(ChangeEvent.houseAdded(house));
+            } finally {
+                stateLock.writeLock().unlock();
+            }
+            return rejected;
+        });
+    }
+
+    // Register a batch of tenants with a single log write; returns the rejection reason by batch index
+    public Map<Integer, String> registerTenants(List<Tenant> batch) throws IOException {
+        return timed("registerTenants", () -> {
+            Map<Integer, String> rejected = new HashMap<>();
+            List<Tenant> accepted = new ArrayList<>();
+            List<WalRecord> records = new ArrayList<>();
+            stateLock.writeLock().lock();
+            try {
+                for (int i = 0; i < batch.size(); i++) {
+                    Tenant tenant = batch.get(i);
+                    try {
+                        validateTenant(tenant);
+                    } catch (IllegalArgumentException e) {
+                        rejected.put(i, e.getMessage());
+                        continue;
+                    }
+                    if (!tenants.add(tenant)) {
+                        rejected.put(i, "Tenant ID already exists.");
+                    } else {
+                        accepted.add(tenant);
+                        records.add(new WalRecord(WalRecordType.TENANT_REGISTERED, formatTenant(tenant)));
+                    }
+                }
+                try {
+                    logAll(records);
+                } catch (IOException e) {
+                    for (Tenant tenant : accepted) tenants.remove(tenant.getId());
+                    throw e;
+                }
+                for (Tenant tenant : accepted) publish(ChangeEvent.tenantRegistered(tenant));
+            } finally {
+                stateLock.writeLock().unlock();
+            }
+            return rejected;
+        });
+    }
+
+    // Record a batch of payments with a single log write; returns the rejection reason by batch index
+    public Map<Integer, String> recordPayments(List<PaymentEntry> batch) throws IOException {
+        return timed("recordPayments", () -> {
+            Map<Integer, String> rejected = new HashMap<>();
+            List<RentalAgreement> targets = new ArrayList<>();
+            List<PaymentEntry> accepted = new ArrayList<>();
+            List<WalRecord> records = new ArrayList<>();
+            Map<String, Integer> nextSequence = new HashMap<>();
+            stateLock.writeLock().lock();
+            try {
+                for (int i = 0; i < batch.size(); i++) {
+                    PaymentEntry entry = batch.get(i);
+                    RentalAgreement agreement = agreements.findById(entry.getAgreementId());
+                    if (agreement == null) {
+                        rejected.put(i, "Agreement not found.");
+                        continue;
+                    }
+                    int sequence = nextSequence.merge(agreement.getId(), 1, Integer::sum) - 1 + agreement.getPayments().size();
+                    targets.add(agreement);
+                    accepted.add(entry);
+                    records.add(new WalRecord(WalRecordType.PAYMENT_RECORDED, agreement.getId() + "," + sequence + "," +
+                                              entry.getDate().format(dateFormatter) + "," + entry.getAmount()));
+                }
+                logAll(records);
+                for (int i = 0; i < accepted.size(); i++) {
+                    PaymentEntry entry = accepted.get(i);
+                    targets.get(i).addPayment(new Payment(entry.getDate(), entry.getAmount()));
+                    revenue.addPayment(targets.get(i), entry.getDate(), BinarySnapshot.toCents(entry.getAmount()));
+                    publish(ChangeEvent.paymentRecorded(targets.get(i), entry.getDate(), entry.getAmount()));
+                }
+            } finally {
+                stateLock.writeLock().unlock();
+            }
+            return rejected;
+        });
+    }
+
+    // Look up an agreement
+    public RentalAgreement getAgreement(String agreementId) throws Exception {
+        RentalAgreement agreement = agreements.findById(agreementId);
+        if (agreement == null) throw new Exception("Agreement not found.");
+        return agreement;
     }
 
     // Check due date for an agreement
     public void checkDueDate(String agreementId) throws Exception {
-        RentalAgreement agreement = agreements.stream().filter(a -> a.getId().equals(agreementId)).findFirst()
-                                             .orElseThrow(() -> new Exception("Agreement not found."));
-        LocalDate currentDate = LocalDate.now();
-        LocalDate nextDueDate = agreement.getNextDueDate();
-        boolean isOverdue = agreement.isPaymentOverdue(currentDate);
-        System.out.println("Next due date for agreement " + agreementId + ": " + nextDueDate);
-        if (isOverdue) {
-            System.out.println("Payment is overdue!");
-        } else {
-            System.out.println("Payment is not yet due.");
+        timed("checkDueDate", () -> {
+            RentalAgreement agreement = agreements.findById(agreementId);
+            if (agreement == null) throw new Exception("Agreement not found.");
+            LocalDate currentDate = LocalDate.now();
+            LocalDate nextDueDate = agreement.getNextDueDate();
+            boolean isOverdue = agreement.isPaymentOverdue(currentDate);
+            System.out.println("Next due date for agreement " + agreementId + ": " + nextDueDate);
+            if (isOverdue) {
+                System.out.println("Payment is overdue!");
+            } else {
+                System.out.println("Payment is not yet due.");
+            }
+        });
+    }
+
+    // Run a bulk import or export: import|export houses|tenants|payments <file.csv|file.jsonl>
+    private static void runBulk(Main rms, String[] args) throws IOException {
+        BulkEntity entity = BulkEntity.valueOf(args[1].toUpperCase(Locale.ROOT));
+        BulkPipeline pipeline = new BulkPipeline(rms);
+        if (args[0].equals("export")) {
+            long count = pipeline.exportFile(entity, args[2]);
+            System.out.println("Exported " + count + " " + args[1] + " to " + args[2] + ".");
+            return;
+        }
+        ImportResult result = pipeline.importFile(entity, args[2]);
+        System.out.println("Imported " + result.getImported() + " " + args[1] + ", rejected " +
+                           result.getErrors().size() + ".");
+        for (ImportError error : result.getErrors()) System.out.println("  " + error);
+    }
+
+    // Run the overdue scan: overdue [yyyy-MM-dd] [report.csv]
+    private static void runOverdueScan(Main rms, String[] args) throws IOException {
+        LocalDate referenceDate = args.length > 1 ? LocalDate.parse(args[1], rms.dateFormatter) : LocalDate.now();
+        OverdueScanner scanner = new OverdueScanner();
+        long started = System.nanoTime();
+        // With a report file the entries are streamed to it instead of being collected
+        OverdueReport report = args.length > 2 ? scanner.writeReport(rms.getAgreements(), referenceDate, args[2])
+                                               : scanner.scan(rms.getAgreements(), referenceDate);
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        System.out.println("Scanned " + report.getScanned() + " agreement(s) as of " + referenceDate +
+                           " in " + elapsedMs + " ms; " + report.getOverdueCount() + " overdue.");
+        for (AgingBucket bucket : AgingBucket.values()) {
+            if (bucket == AgingBucket.CURRENT) continue;
+            System.out.println(String.format("  %-13s %8d  %.2f", bucket, report.getCount(bucket),
+                                             report.getOutstanding(bucket)));
+        }
+        if (args.length > 2) System.out.println("Report written to " + args[2] + ".");
+    }
+
+    // Rank houses for all unassigned tenants and propose one house per tenant: rematch [k] [matches.csv]
+    private static void runRematch(Main rms, String[] args) throws IOException {
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long started = System.nanoTime();
+        Map<String, List<ScoredHouse>> matches = rms.rankUnassignedTenants(k);
+        Map<String, ScoredHouse> assigned = TenantMatcher.assign(matches);
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        System.out.println("Ranked houses for " + matches.size() + " unassigned tenant(s) in " + elapsedMs + " ms; " +
+                           assigned.size() + " matched to a house of their own.");
+        if (args.length < 3) return;
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(args[2]))) {
+            writer.write("tenantId,rank,houseId,location,price,bedrooms,score,assigned");
+            writer.newLine();
+            List<String> tenantIds = new ArrayList<>(matches.keySet());
+            Collections.sort(tenantIds);
+            for (String tenantId : tenantIds) {
+                int rank = 1;
+                for (ScoredHouse match : matches.get(tenantId)) {
+                    House house = match.getHouse();
+                    writer.write(String.format("%s,%d,%s,%s,%.0f,%d,%.3f,%b", tenantId, rank++, house.getId(),
+                                               house.getLocation(), house.getPrice(), house.getBedrooms(), match.getScore(),
+                                               assigned.get(tenantId) == match));
+                    writer.newLine();
+                }
+            }
         }
+        System.out.println("Matches written to " + args[2] + ".");
     }
 
     // Main method with menu
     public static void main(String[] args) {
         Main rms = new Main();
-        Scanner scanner = new Scanner(System.in);
 
         try {
-            rms.loadHouses();
-            rms.loadTenants();
-            rms.loadAgreements();
+            rms.load();
         } catch (IOException e) {
+            // Starting without the logged changes would overwrite them at the next compaction
             System.out.println("Error loading files: " + e.getMessage());
+            return;
         }
 
+        if (args.length == 1 && args[0].equals("convert")) {
+            try {
+                rms.convertToBinary();
+                rms.close();
+                System.out.println("Wrote " + rms.SNAPSHOT_FILE + "; start with -Drental.format=binary to use it.");
+            } catch (IOException e) {
+                System.out.println("Error: " + e.getMessage());
+            }
+            return;
+        }
+
+        if (args.length >= 1 && args[0].equals("serve")) {
+            try {
+                int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+                RentalHttpServer server = new RentalHttpServer(new ConcurrentRentalService(rms), port);
+                rms.startBackgroundTasks();
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    server.stop();
+                    try {
+                        rms.close();
+                    } catch (IOException e) {
+                        System.err.println("Error closing: " + e.getMessage());
+                    }
+                }));
+                server.start();
+                System.out.println("Serving the rental API on port " + server.getPort() + ".");
+            } catch (Exception e) {
+                System.out.println("Error: " + e.getMessage());
+            }
+            return;
+        }
+
+        if (args.length >= 1 && args[0].equals("overdue")) {
+            try {
+                runOverdueScan(rms, args);
+            } catch (Exception e) {
+                System.out.println("Error: " + e.getMessage());
+            }
+            return;
+        }
+
+        if (args.length >= 1 && args[0].equals("rematch")) {
+            try {
+                runRematch(rms, args);
+            } catch (Exception e) {
+                System.out.println("Error: " + e.getMessage());
+            }
+            return;
+        }
+
+        if (args.length == 3 && (args[0].equals("import") || args[0].equals("export"))) {
+            try {
+                runBulk(rms, args);
+                rms.close();
+            } catch (Exception e) {
+                System.out.println("Error: " + e.getMessage());
+            }
+            return;
+        }
+
+        Scanner scanner = new Scanner(System.in);
+        rms.startBackgroundTasks();
+
         while (true) {
             System.out.println("\n=== House Rental Management System ===");
             System.out.println("1. Add House");
@@ -403,7 +1415,10 @@ public class Main {
                         System.out.print("Name: "); String name = scanner.nextLine();
                         System.out.print("Contact: "); String contact = scanner.nextLine();
                         System.out.print("Preferred Location: "); String prefLoc = scanner.nextLine();
-                        rms.registerTenant(tId, name, contact, prefLoc);
+                        System.out.print("Budget (blank for any): "); String budget = scanner.nextLine().trim();
+                        System.out.print("Bedrooms (blank for any): "); String wanted = scanner.nextLine().trim();
+                        rms.registerTenant(tId, name, contact, prefLoc, budget.isEmpty() ? 0 : Double.parseDouble(budget),
+                                           wanted.isEmpty() ? 0 : Integer.parseInt(wanted));
                         System.out.println("Tenant registered.");
                         break;
 
@@ -440,6 +1455,7 @@ public class Main {
                         break;
 
                     case 9: // Exit
+                        rms.close();
                         System.out.println("Goodbye!");
                         scanner.close();
                         return;
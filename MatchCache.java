@@ -0,0 +1,129 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Bounded cache of search and match results, invalidated per location bucket.
+// Each location has a version that is bumped on every availability change there; a result
+// computed while the version moved is returned but not cached, so a booked house can never
+// be served from the cache after its booking completed.
+// Hits are lock-free and only stamp the entry with the current insertion count. Inserts,
+// invalidations and eviction share one lock; once a limit is exceeded, a sweep drops the
+// least recently stamped entries until the cache is a tenth below its limits, so LRU order
+// is approximate and sweeps stay rare.
+class MatchCache {
+    private static class Entry {
+        final String key;
+        final String location;
+        final List<House> houses;
+        volatile long lastUsed;
+
+        Entry(String key, String location, List<House> houses) {
+            this.key = key;
+            this.location = location;
+            this.houses = houses;
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    // Guarded by this
+    private final Map<String, Set<String>> keysByLocation = new HashMap<>();
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private long weight;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    // maxWeight bounds the total number of house references held across all entries
+    public MatchCache(int maxEntries, long maxWeight) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.maxWeight = Math.max(0, maxWeight);
+    }
+
+    // Return the cached result for key, or compute it with loader and cache it
+    public List<House> get(String key, String location, Supplier<List<House>> loader) {
+        if (maxEntries == 0) return loader.get();
+        long version = version(location).get();
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits.increment();
+            long now = clock.get();
+            // Skip the write when already stamped, so hot entries do not bounce between cores
+            if (entry.lastUsed != now) entry.lastUsed = now;
+            return entry.houses;
+        }
+        misses.increment();
+        List<House> houses = Collections.unmodifiableList(loader.get());
+        synchronized (this) {
+            if (version(location).get() == version && !entries.containsKey(key)) {
+                Entry added = new Entry(key, location, houses);
+                added.lastUsed = clock.incrementAndGet();
+                entries.put(key, added);
+                keysByLocation.computeIfAbsent(location, k -> new HashSet<>()).add(key);
+                weight += houses.size() + 1;
+                if (entries.size() > maxEntries || weight > maxWeight) evict();
+            }
+        }
+        return houses;
+    }
+
+    // Drop every result for a location bucket; call after the change is visible in the index
+    public void invalidate(String location) {
+        version(location).incrementAndGet();
+        synchronized (this) {
+            Set<String> keys = keysByLocation.remove(location);
+            if (keys == null) return;
+            for (String key : keys) {
+                Entry entry = entries.remove(key);
+                if (entry != null) weight -= entry.houses.size() + 1;
+            }
+            invalidations.add(keys.size());
+        }
+    }
+
+    public void clear() {
+        synchronized (this) {
+            for (AtomicLong version : versions.values()) version.incrementAndGet();
+            entries.clear();
+            keysByLocation.clear();
+            weight = 0;
+        }
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    public long getInvalidations() { return invalidations.sum(); }
+    public int size() { return entries.size(); }
+
+    private AtomicLong version(String location) {
+        return versions.computeIfAbsent(location, k -> new AtomicLong());
+    }
+
+    // Remove the least recently used entries until both limits hold with a tenth to spare; caller holds the lock
+    private void evict() {
+        long entryTarget = maxEntries - maxEntries / 10;
+        long weightTarget = maxWeight - maxWeight / 10;
+        // Stamps keep changing under concurrent hits, so sort on a copy taken now
+        List<Map.Entry<Long, Entry>> byAge = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) byAge.add(Map.entry(entry.lastUsed, entry));
+        byAge.sort(Map.Entry.comparingByKey());
+        Iterator<Map.Entry<Long, Entry>> eldest = byAge.iterator();
+        while ((entries.size() > entryTarget || weight > weightTarget) && eldest.hasNext()) {
+            Entry entry = eldest.next().getValue();
+            entries.remove(entry.key);
+            weight -= entry.houses.size() + 1;
+            Set<String> keys = keysByLocation.get(entry.location);
+            if (keys != null) {
+                keys.remove(entry.key);
+                if (keys.isEmpty()) keysByLocation.remove(entry.location);
+            }
+            evictions.increment();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+// Aging buckets of the dunning report, by days past the first unpaid due date
+enum AgingBucket {
+    CURRENT(0), DAYS_1_30(30), DAYS_31_60(60), DAYS_61_90(90), DAYS_OVER_90(Long.MAX_VALUE);
+
+    private final long maxDays;
+
+    AgingBucket(long maxDays) { this.maxDays = maxDays; }
+
+    public static AgingBucket of(long daysOverdue) {
+        for (AgingBucket bucket : values()) {
+            if (daysOverdue <= bucket.maxDays) return bucket;
+        }
+        return DAYS_OVER_90;
+    }
+}
+
+// Rent position of one agreement on the reference date
+class OverdueEntry {
+    private RentalAgreement agreement;
+    private LocalDate nextDueDate;
+    private long daysOverdue;
+    private long outstandingCents;
+
+    public OverdueEntry(RentalAgreement agreement, LocalDate nextDueDate, long daysOverdue, long outstandingCents) {
+        this.agreement = agreement;
+        this.nextDueDate = nextDueDate;
+        this.daysOverdue = daysOverdue;
+        this.outstandingCents = outstandingCents;
+    }
+
+    public RentalAgreement getAgreement() { return agreement; }
+    public LocalDate getNextDueDate() { return nextDueDate; }
+    public long getDaysOverdue() { return daysOverdue; }
+    public long getOutstandingCents() { return outstandingCents; }
+    public double getOutstanding() { return outstandingCents / 100.0; }
+    public AgingBucket getBucket() { return AgingBucket.of(daysOverdue); }
+}
+
+// Overdue agreements plus per-bucket counts and outstanding totals
+class OverdueReport {
+    private final LocalDate referenceDate;
+    private final List<OverdueEntry> entries = new ArrayList<>();
+    private final long[] bucketCounts = new long[AgingBucket.values().length];
+    private final long[] bucketCents = new long[AgingBucket.values().length];
+    private long scanned;
+
+    public OverdueReport(LocalDate referenceDate) {
+        this.referenceDate = referenceDate;
+    }
+
+    public LocalDate getReferenceDate() { return referenceDate; }
+    public List<OverdueEntry> getEntries() { return entries; }
+    public long getScanned() { return scanned; }
+    public long getOverdueCount() { return Arrays.stream(bucketCounts).sum(); }
+    public long getCount(AgingBucket bucket) { return bucketCounts[bucket.ordinal()]; }
+    public double getOutstanding(AgingBucket bucket) { return bucketCents[bucket.ordinal()] / 100.0; }
+
+    void add(OverdueEntry entry) {
+        entries.add(entry);
+        bucketCounts[entry.getBucket().ordinal()]++;
+        bucketCents[entry.getBucket().ordinal()] += entry.getOutstandingCents();
+    }
+
+    void countScanned(long count) { scanned += count; }
+
+    // Append another partial report; entries stay in agreement ID order
+    void merge(OverdueReport other) {
+        entries.addAll(other.entries);
+        for (int i = 0; i < bucketCounts.length; i++) {
+            bucketCounts[i] += other.bucketCounts[i];
+            bucketCents[i] += other.bucketCents[i];
+        }
+        scanned += other.scanned;
+    }
+
+    // Add another partial report's counts and totals but not its entries
+    void mergeTotals(OverdueReport other) {
+        for (int i = 0; i < bucketCounts.length; i++) {
+            bucketCounts[i] += other.bucketCounts[i];
+            bucketCents[i] += other.bucketCents[i];
+        }
+        scanned += other.scanned;
+    }
+}
+
+// Portfolio-wide overdue scan for the nightly dunning job.
+// Rent is due monthly from the start date up to the end date, one house price per month.
+// Unlike RentalAgreement.getNextDueDate, which counts payments, the scan credits
+// payments by amount: the first unpaid due date is the start date plus the number of
+// whole months the summed payments cover.
+class OverdueScanner {
+    private static final int SPLIT_THRESHOLD = 4096;
+    // Agreement IDs are "RA" plus a counter, so shorter IDs sort first to keep RA9 before RA10
+    private static final Comparator<RentalAgreement> BY_ID =
+        Comparator.comparingInt((RentalAgreement a) -> a.getId().length()).thenComparing(RentalAgreement::getId);
+
+    private final ForkJoinPool pool;
+
+    public OverdueScanner() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public OverdueScanner(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // Entries come back in agreement ID order
+    public OverdueReport scan(Collection<RentalAgreement> agreements, LocalDate referenceDate) {
+        RentalAgreement[] all = inIdOrder(agreements);
+        return pool.invoke(new ScanTask(all, 0, all.length, referenceDate));
+    }
+
+    // Evaluate one agreement; returns null when nothing is overdue
+    public static OverdueEntry evaluate(RentalAgreement agreement, LocalDate referenceDate) {
+        if (agreement.getHouse() == null || referenceDate.isBefore(agreement.getStartDate())) return null;
+        long rentCents = Math.round(agreement.getHouse().getPrice() * 100);
+        if (rentCents <= 0) return null;
+        LocalDate lastDay = referenceDate.isAfter(agreement.getEndDate()) ? agreement.getEndDate() : referenceDate;
+        long monthsDue = ChronoUnit.MONTHS.between(agreement.getStartDate(), lastDay) + 1;
+        long paidCents = agreement.getLedger().getTotalCents();
+        long outstandingCents = monthsDue * rentCents - paidCents;
+        if (outstandingCents <= 0) return null;
+        LocalDate nextDueDate = agreement.getStartDate().plusMonths(paidCents / rentCents);
+        long daysOverdue = ChronoUnit.DAYS.between(nextDueDate, referenceDate);
+        if (daysOverdue <= 0) return null;
+        return new OverdueEntry(agreement, nextDueDate, daysOverdue, outstandingCents);
+    }
+
+    // Scan and stream the report as CSV, one overdue agreement per line. Chunks of agreements are
+    // evaluated in parallel and written in agreement ID order as each completes; only a window of
+    // chunks is in flight, so memory does not grow with the number of overdue agreements.
+    // The returned report has the counts and totals but no entries.
+    public OverdueReport writeReport(Collection<RentalAgreement> agreements, LocalDate referenceDate,
+                                     String file) throws IOException {
+        RentalAgreement[] all = inIdOrder(agreements);
+        OverdueReport totals = new OverdueReport(referenceDate);
+        int window = Math.max(2, pool.getParallelism() * 2);
+        Deque<ForkJoinTask<OverdueReport>> inFlight = new ArrayDeque<>();
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8)) {
+            writer.write("agreementId,houseId,tenantId,nextDueDate,daysOverdue,outstanding,bucket");
+            writer.newLine();
+            StringBuilder sb = new StringBuilder(128);
+            int next = 0;
+            while (next < all.length || !inFlight.isEmpty()) {
+                while (next < all.length && inFlight.size() < window) {
+                    int to = Math.min(all.length, next + SPLIT_THRESHOLD);
+                    inFlight.add(pool.submit(new ScanTask(all, next, to, referenceDate)));
+                    next = to;
+                }
+                OverdueReport chunk = inFlight.poll().join();
+                for (OverdueEntry entry : chunk.getEntries()) {
+                    RentalAgreement agreement = entry.getAgreement();
+                    sb.setLength(0);
+                    sb.append(agreement.getId()).append(',')
+                      .append(agreement.getHouse().getId()).append(',')
+                      .append(agreement.getTenant() == null ? "" : agreement.getTenant().getId()).append(',')
+                      .append(entry.getNextDueDate()).append(',')
+                      .append(entry.getDaysOverdue()).append(',')
+                      .append(String.format("%.2f", entry.getOutstanding())).append(',')
+                      .append(entry.getBucket());
+                    writer.write(sb.toString());
+                    writer.newLine();
+                }
+                totals.mergeTotals(chunk);
+            }
+        } finally {
+            for (ForkJoinTask<OverdueReport> task : inFlight) task.cancel(false);
+        }
+        return totals;
+    }
+
+    // The repository iterates in hash order, which is neither meaningful nor stable across runs
+    private static RentalAgreement[] inIdOrder(Collection<RentalAgreement> agreements) {
+        RentalAgreement[] all = agreements.toArray(new RentalAgreement[0]);
+        Arrays.parallelSort(all, BY_ID);
+        return all;
+    }
+
+    private static class ScanTask extends RecursiveTask<OverdueReport> {
+        private static final long serialVersionUID = 1L;
+
+        private final RentalAgreement[] agreements;
+        private final int from;
+        private final int to;
+        private final LocalDate referenceDate;
+
+        ScanTask(RentalAgreement[] agreements, int from, int to, LocalDate referenceDate) {
+            this.agreements = agreements;
+            this.from = from;
+            this.to = to;
+            this.referenceDate = referenceDate;
+        }
+
+        @Override
+        protected OverdueReport compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                OverdueReport report = new OverdueReport(referenceDate);
+                for (int i = from; i < to; i++) {
+                    OverdueEntry entry = evaluate(agreements[i], referenceDate);
+                    if (entry != null) report.add(entry);
+                }
+                report.countScanned(to - from);
+                return report;
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask left = new ScanTask(agreements, from, mid, referenceDate);
+            left.fork();
+            OverdueReport right = new ScanTask(agreements, mid, to, referenceDate).compute();
+            OverdueReport report = left.join();
+            report.merge(right);
+            return report;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Payment histories of expired agreements, left in the agreements file and paged in on demand.
+// Only the byte range of each history ("date:amount;..." between the brackets) stays in memory;
+// a history is parsed on first access and kept in a bounded LRU cache after that.
+// Reads are positional, so concurrent loads share one channel without seeking.
+class PaymentArchive implements Closeable {
+    // Byte range of one payment history within the agreements file, and how many payments it holds
+    static class Segment {
+        final long offset;
+        final int length;
+        final int payments;
+
+        Segment(long offset, int length, int payments) {
+            this.offset = offset;
+            this.length = length;
+            this.payments = payments;
+        }
+    }
+
+    private final int maxCached;
+    private final LinkedHashMap<String, PaymentLedger> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantReadWriteLock fileLock = new ReentrantReadWriteLock();
+    private Map<String, Segment> segments = new ConcurrentHashMap<>();
+    private FileChannel channel;
+    private long loads;
+    private long hits;
+
+    public PaymentArchive(int maxCached) {
+        this.maxCached = Math.max(0, maxCached);
+    }
+
+    // Point the archive at a freshly written agreements file and its history offsets
+    public void open(String file, Map<String, Segment> newSegments) throws IOException {
+        FileChannel opened = newSegments.isEmpty() ? null : FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+        fileLock.writeLock().lock();
+        try {
+            if (channel != null) channel.close();
+            channel = opened;
+            segments = new ConcurrentHashMap<>(newSegments);
+            synchronized (cache) {
+                cache.keySet().retainAll(segments.keySet());
+            }
+        } finally {
+            fileLock.writeLock().unlock();
+        }
+    }
+
+    public int size() { return segments.size(); }
+
+    // Number of payments in an archived history, or 0 when the agreement is not archived
+    public int paymentCount(String agreementId) {
+        Segment segment = segments.get(agreementId);
+        return segment == null ? 0 : segment.payments;
+    }
+
+    // Number of payments in a stored history, counted from its separators
+    public static int countPayments(byte[] raw) {
+        if (raw.length == 0) return 0;
+        int count = 1;
+        for (byte b : raw) {
+            if (b == ';') count++;
+        }
+        return count;
+    }
+
+    // Parsed history of an archived agreement, from the cache or the file
+    public PaymentLedger load(String agreementId) {
+        synchronized (cache) {
+            PaymentLedger cached = cache.get(agreementId);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+        }
+        PaymentLedger ledger = parse(raw(agreementId));
+        synchronized (cache) {
+            loads++;
+            if (maxCached > 0 && segments.containsKey(agreementId)) {
+                cache.put(agreementId, ledger);
+                if (cache.size() > maxCached) {
+                    Iterator<String> eldest = cache.keySet().iterator();
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        return ledger;
+    }
+
+    // Drop the cached copy of a history that has been made resident again; its segment stays
+    // readable until the next save
+    public void release(String agreementId) {
+        synchronized (cache) {
+            cache.remove(agreementId);
+        }
+    }
+
+    // The history exactly as stored, so saves can copy it without parsing
+    public byte[] raw(String agreementId) {
+        fileLock.readLock().lock();
+        try {
+            Segment segment = segments.get(agreementId);
+            if (segment == null) throw new IllegalStateException("Agreement " + agreementId + " is not archived.");
+            ByteBuffer buffer = ByteBuffer.allocate(segment.length);
+            long position = segment.offset;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) throw new EOFException("Agreements file truncated at " + position);
+                position += read;
+            }
+            return buffer.array();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            fileLock.readLock().unlock();
+        }
+    }
+
+    public int getCached() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public long getLoads() {
+        synchronized (cache) {
+            return loads;
+        }
+    }
+
+    public long getHits() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        open(null, Collections.emptyMap());
+    }
+
+    private static PaymentLedger parse(byte[] raw) {
+        PaymentLedger ledger = new PaymentLedger();
+        String payments = new String(raw, StandardCharsets.UTF_8);
+        if (payments.isEmpty()) return ledger;
+        for (String payment : payments.split(";")) {
+            String[] details = payment.split(":");
+            ledger.add(LocalDate.parse(details[0]), Double.parseDouble(details[1]));
+        }
+        return ledger;
+    }
+}
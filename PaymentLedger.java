@@ -0,0 +1,87 @@
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+// Payment history of one agreement held in primitive columns: epoch day and amount in cents.
+// Footprint per payment on a 64-bit JVM with compressed oops:
+//   List<Payment>:  Payment (24 B) + LocalDate (24 B) + list slot (4-6 B)  ~ 52-54 B
+//   PaymentLedger:  int day (4 B) + long cents (8 B), plus growth slack     ~ 12-18 B
+// Totals and the latest payment date are maintained on append, so they are O(1).
+// Appends must be serialized by the caller; readers may run concurrently because the
+// columns are fully written before the volatile size publishes a new payment.
+class PaymentLedger {
+    private static final int[] NO_DAYS = new int[0];
+    private static final long[] NO_CENTS = new long[0];
+
+    private int[] days = NO_DAYS;
+    private long[] cents = NO_CENTS;
+    private volatile int size;
+    private volatile long totalCents;
+    private volatile int lastDay = Integer.MIN_VALUE;
+
+    public void add(LocalDate date, double amount) {
+        add((int) date.toEpochDay(), Math.round(amount * 100));
+    }
+
+    public void add(int epochDay, long amountCents) {
+        int n = size;
+        if (n == days.length) {
+            int capacity = n == 0 ? 4 : n + (n >> 1);
+            long[] grownCents = Arrays.copyOf(cents, capacity);
+            days = Arrays.copyOf(days, capacity);
+            cents = grownCents;
+        }
+        days[n] = epochDay;
+        cents[n] = amountCents;
+        totalCents += amountCents;
+        if (epochDay > lastDay) lastDay = epochDay;
+        size = n + 1;
+    }
+
+    public int size() { return size; }
+
+    public int getEpochDay(int index) {
+        checkIndex(index);
+        return days[index];
+    }
+
+    public long getAmountCents(int index) {
+        checkIndex(index);
+        return cents[index];
+    }
+
+    public LocalDate getDate(int index) { return LocalDate.ofEpochDay(getEpochDay(index)); }
+    public double getAmount(int index) { return getAmountCents(index) / 100.0; }
+
+    public long getTotalCents() { return totalCents; }
+    public double getTotalPaid() { return totalCents / 100.0; }
+
+    // Latest payment date, or null when nothing has been paid
+    public LocalDate getLastPaymentDate() {
+        int day = lastDay;
+        return day == Integer.MIN_VALUE ? null : LocalDate.ofEpochDay(day);
+    }
+
+    // Read-only list view; each Payment is created on access
+    public List<Payment> asList() {
+        return new AbstractList<Payment>() {
+            @Override
+            public Payment get(int index) {
+                return new Payment(getDate(index), getAmount(index));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // Must run before the column is read: the volatile read of size is what makes an array at
+    // least that long visible. days[checkIndex(i)] would load the array reference first.
+    private void checkIndex(int index) {
+        int n = size;
+        if (index < 0 || index >= n) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + n);
+    }
+}
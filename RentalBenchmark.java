@@ -0,0 +1,222 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Stream;
+
+// One measured operation on one dataset size
+class BenchmarkResult {
+    private final int dataset;
+    private final String operation;
+    private final long[] samplesNs;
+
+    public BenchmarkResult(int dataset, String operation, long[] samplesNs) {
+        this.dataset = dataset;
+        this.operation = operation;
+        this.samplesNs = samplesNs.clone();
+        Arrays.sort(this.samplesNs);
+    }
+
+    public double getMeanNs() {
+        long total = 0;
+        for (long sample : samplesNs) total += sample;
+        return (double) total / samplesNs.length;
+    }
+
+    public long percentile(double p) {
+        int index = (int) Math.ceil(p / 100.0 * samplesNs.length) - 1;
+        return samplesNs[Math.max(0, Math.min(samplesNs.length - 1, index))];
+    }
+
+    public String toJson() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("dataset", dataset);
+        fields.put("operation", operation);
+        fields.put("samples", samplesNs.length);
+        fields.put("meanNs", Math.round(getMeanNs()));
+        fields.put("p50Ns", percentile(50));
+        fields.put("p99Ns", percentile(99));
+        fields.put("maxNs", samplesNs[samplesNs.length - 1]);
+        fields.put("opsPerSec", Math.round(1e9 / getMeanNs()));
+        return Json.toJson(fields);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%9d  %-22s %8d samples  mean %12.0f ns  p50 %12d ns  p99 %12d ns",
+                             dataset, operation, samplesNs.length, getMeanNs(), percentile(50), percentile(99));
+    }
+}
+
+// Benchmark harness for the load, save, search, match, booking and payment paths of Main.
+// Each dataset size gets a synthetic data directory: 30% of houses unbooked, one tenant per
+// house, and every booked house has a lease started up to three years ago with monthly
+// payments up to today. Every operation is warmed up before it is measured.
+//
+// Usage: java RentalBenchmark [sizes] [results.json] [label]
+//   sizes   comma separated house counts, default 10000,100000,1000000
+//   label   version tag stored with the results so runs can be compared
+public class RentalBenchmark {
+    private static final String[] LOCATIONS = {
+        "chennai", "coimbatore", "bangalore", "madurai", "hyderabad", "pune", "mumbai", "delhi",
+        "kochi", "mysore", "salem", "trichy", "vellore", "tirupur", "erode", "hosur"
+    };
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private final Random random = new Random(42);
+    private final List<BenchmarkResult> results = new ArrayList<>();
+    private int sink;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = Arrays.stream((args.length > 0 ? args[0] : "10000,100000,1000000").split(","))
+                            .mapToInt(Integer::parseInt).toArray();
+        String output = args.length > 1 ? args[1] : "bench-results.json";
+        String label = args.length > 2 ? args[2] : "unlabelled";
+        // Measure the in-memory and append cost of mutations rather than per-record fsync
+        System.setProperty("rental.wal.fsyncBatch", String.valueOf(Integer.MAX_VALUE));
+
+        RentalBenchmark benchmark = new RentalBenchmark();
+        for (int size : sizes) benchmark.run(size);
+        benchmark.writeJson(output, label);
+        System.out.println("Results written to " + output + " (checksum " + benchmark.sink + ")");
+    }
+
+    private void run(int size) throws Exception {
+        Path dir = Files.createTempDirectory("rental-bench-" + size + "-");
+        try {
+            System.out.println("Generating " + size + " houses in " + dir);
+            generate(dir, size);
+
+            measure(size, "load", 2, 5, () -> {
+                Main rms = new Main(dir.toString());
+                rms.loadHouses();
+                rms.loadTenants();
+                rms.loadAgreements();
+                sink += rms.getAgreements().size();
+            });
+
+            Main rms = new Main(dir.toString());
+            rms.loadHouses();
+            rms.loadTenants();
+            rms.loadAgreements();
+
+            measure(size, "saveAgreements", 2, 5, rms::saveAgreements);
+            measure(size, "searchHouses", 2000, 20000, () -> {
+                String location = LOCATIONS[random.nextInt(LOCATIONS.length)];
+                sink += rms.searchHouses(location, 5000 + random.nextInt(45000)).size();
+            });
+            measure(size, "matchTenantWithHouses", 200, 2000, () ->
+                sink += rms.matchTenantWithHouses("t" + random.nextInt(size)).size());
+
+            List<House> free = new ArrayList<>();
+            for (House house : rms.getHouses()) {
+                if (!house.isBooked()) free.add(house);
+            }
+            Collections.shuffle(free, random);
+            Iterator<House> nextFree = free.iterator();
+            LocalDate start = LocalDate.now();
+            int bookings = Math.min(free.size(), 20000);
+            measure(size, "bookHouse", bookings / 10, bookings - bookings / 10, () -> {
+                House house = nextFree.next();
+                rms.bookHouse(house.getId(), "t" + random.nextInt(size), start, start.plusYears(1), house.getPrice());
+            });
+
+            List<String> agreementIds = new ArrayList<>();
+            for (RentalAgreement agreement : rms.getAgreements()) agreementIds.add(agreement.getId());
+            measure(size, "recordPayment", 2000, 20000, () ->
+                rms.recordPayment(agreementIds.get(random.nextInt(agreementIds.size())), start, 15000));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    interface Operation {
+        void run() throws Exception;
+    }
+
+    private void measure(int size, String name, int warmup, int iterations, Operation operation) throws Exception {
+        for (int i = 0; i < warmup; i++) operation.run();
+        long[] samples = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long started = System.nanoTime();
+            operation.run();
+            samples[i] = System.nanoTime() - started;
+        }
+        BenchmarkResult result = new BenchmarkResult(size, name, samples);
+        results.add(result);
+        System.out.println(result);
+    }
+
+    // Dataset and locations for the JMH benchmarks, which can only reach this class reflectively
+    public static void generateDataset(Path dir, int size) throws IOException {
+        new RentalBenchmark().generate(dir, size);
+    }
+
+    public static String[] locations() { return LOCATIONS.clone(); }
+
+    // Write the data files in Main's text format
+    private void generate(Path dir, int size) throws IOException {
+        LocalDate today = LocalDate.now();
+        try (BufferedWriter houses = writer(dir, "houses.txt");
+             BufferedWriter tenants = writer(dir, "tenants.txt");
+             BufferedWriter agreements = writer(dir, "agreements.txt")) {
+            int agreementId = 1;
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < size; i++) {
+                String location = LOCATIONS[random.nextInt(LOCATIONS.length)];
+                int price = 5000 + random.nextInt(46) * 1000;
+                boolean booked = random.nextInt(10) < 7;
+                String tenantId = "t" + i;
+                houses.write("h" + i + "," + location + "," + price + "," + (1 + random.nextInt(4)) + ",owner" +
+                             random.nextInt(size / 10 + 1) + "," + booked + "," + (booked ? tenantId : ""));
+                houses.newLine();
+                tenants.write(tenantId + ",tenant" + i + "," + (9000000000L + i) + "," +
+                              LOCATIONS[random.nextInt(LOCATIONS.length)]);
+                tenants.newLine();
+                if (!booked) continue;
+
+                LocalDate start = today.minusMonths(random.nextInt(36)).withDayOfMonth(1);
+                sb.setLength(0);
+                sb.append("RA").append(agreementId++).append(",h").append(i).append(',').append(tenantId).append(',')
+                  .append(start.format(DATE_FORMAT)).append(',').append(start.plusYears(3).format(DATE_FORMAT))
+                  .append(',').append(price * 2.0).append(",[");
+                for (LocalDate due = start; !due.isAfter(today); due = due.plusMonths(1)) {
+                    if (due != start) sb.append(';');
+                    sb.append(due.plusDays(random.nextInt(5)).format(DATE_FORMAT)).append(':').append((double) price);
+                }
+                agreements.write(sb.append(']').toString());
+                agreements.newLine();
+            }
+        }
+    }
+
+    private void writeJson(String file, String label) throws IOException {
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("label", label);
+        header.put("timestamp", Instant.now().toString());
+        header.put("java", System.getProperty("java.version"));
+        header.put("cores", Runtime.getRuntime().availableProcessors());
+        String headerJson = Json.toJson(header);
+        StringBuilder sb = new StringBuilder(headerJson.substring(0, headerJson.length() - 1));
+        sb.append(",\"results\":[");
+        for (int i = 0; i < results.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append("\n  ").append(results.get(i).toJson());
+        }
+        sb.append("\n]}\n");
+        Files.write(Paths.get(file), sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static BufferedWriter writer(Path dir, String name) throws IOException {
+        return Files.newBufferedWriter(dir.resolve(name), StandardCharsets.UTF_8);
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,287 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// JSON HTTP API over the rental operations, for running without the console menu.
+//   GET    /houses?location=&maxPrice=[&minBedrooms=&offset=&limit=]   search available houses
+//   GET    /houses/available?location=&from=&to=                   houses with no lease in the date range
+//   POST   /houses                      {"id","location","price","bedrooms","owner"}
+//   DELETE /houses/{id}
+//   POST   /tenants                     {"id","name","contact","preferredLocation"[,"budget","bedrooms"]}
+//   GET    /tenants/{id}/matches
+//   GET    /tenants/{id}/ranked[?k=]    best k houses with their match scores
+//   POST   /bookings                    {"houseId","tenantId","startDate","endDate","deposit"}
+//   POST   /agreements/{id}/payments    {"date","amount"}
+//   GET    /agreements/{id}/due
+//   GET    /revenue/owners/{owner}[?from=yyyy-MM&to=yyyy-MM]
+//   GET    /revenue/locations/{location}[?from=yyyy-MM&to=yyyy-MM]
+// Each request runs on its own virtual thread when the JVM supports them (Java 21+),
+// otherwise on a cached thread pool.
+class RentalHttpServer {
+    private final ConcurrentRentalService service;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public RentalHttpServer(ConcurrentRentalService service, int port) throws IOException {
+        this.service = service;
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/houses", this::handleHouses);
+        server.createContext("/tenants", this::handleTenants);
+        server.createContext("/bookings", this::handleBookings);
+        server.createContext("/agreements", this::handleAgreements);
+        server.createContext("/revenue", this::handleRevenue);
+    }
+
+    // One virtual thread per task where available
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public void start() { server.start(); }
+
+    public int getPort() { return server.getAddress().getPort(); }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private void handleHouses(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            String method = exchange.getRequestMethod();
+            String[] path = segments(exchange);
+            if (path.length == 1 && method.equals("GET")) {
+                Map<String, String> query = query(exchange);
+                List<House> houses = service.searchHouses(required(query, "location"),
+                        Double.parseDouble(query.getOrDefault("maxPrice", String.valueOf(Double.MAX_VALUE))),
+                        Integer.parseInt(query.getOrDefault("minBedrooms", "0")),
+                        Integer.parseInt(query.getOrDefault("offset", "0")),
+                        Integer.parseInt(query.getOrDefault("limit", String.valueOf(Integer.MAX_VALUE))));
+                return respond(exchange, 200, houses(houses));
+            }
+            if (path.length == 2 && path[1].equals("available") && method.equals("GET")) {
+                Map<String, String> query = query(exchange);
+                return respond(exchange, 200, houses(service.findAvailableHouses(required(query, "location"),
+                        LocalDate.parse(required(query, "from")), LocalDate.parse(required(query, "to")))));
+            }
+            if (path.length == 1 && method.equals("POST")) {
+                Map<String, String> body = body(exchange);
+                service.addHouse(required(body, "id"), required(body, "location"),
+                                 Double.parseDouble(required(body, "price")),
+                                 Integer.parseInt(required(body, "bedrooms")), required(body, "owner"));
+                return respond(exchange, 201, status("created"));
+            }
+            if (path.length == 2 && method.equals("DELETE")) {
+                service.removeHouse(path[1]);
+                return respond(exchange, 200, status("removed"));
+            }
+            return notFound(exchange);
+        });
+    }
+
+    private void handleTenants(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            String method = exchange.getRequestMethod();
+            String[] path = segments(exchange);
+            if (path.length == 1 && method.equals("POST")) {
+                Map<String, String> body = body(exchange);
+                service.registerTenant(required(body, "id"), required(body, "name"), required(body, "contact"),
+                                       required(body, "preferredLocation"),
+                                       Double.parseDouble(body.getOrDefault("budget", "0")),
+                                       Integer.parseInt(body.getOrDefault("bedrooms", "0")));
+                return respond(exchange, 201, status("created"));
+            }
+            if (path.length == 3 && path[2].equals("matches") && method.equals("GET")) {
+                return respond(exchange, 200, houses(service.matchTenantWithHouses(path[1])));
+            }
+            if (path.length == 3 && path[2].equals("ranked") && method.equals("GET")) {
+                int k = Integer.parseInt(query(exchange).getOrDefault("k", "10"));
+                return respond(exchange, 200, rankedHouses(service.rankHousesForTenant(path[1], k)));
+            }
+            return notFound(exchange);
+        });
+    }
+
+    private void handleBookings(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            if (segments(exchange).length != 1 || !exchange.getRequestMethod().equals("POST")) return notFound(exchange);
+            Map<String, String> body = body(exchange);
+            String agreementId = service.bookHouse(required(body, "houseId"), required(body, "tenantId"),
+                                                   LocalDate.parse(required(body, "startDate")),
+                                                   LocalDate.parse(required(body, "endDate")),
+                                                   Double.parseDouble(required(body, "deposit")));
+            return respond(exchange, 201, Json.toJson(Collections.singletonMap("agreementId", agreementId)));
+        });
+    }
+
+    private void handleAgreements(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            String method = exchange.getRequestMethod();
+            String[] path = segments(exchange);
+            if (path.length == 3 && path[2].equals("payments") && method.equals("POST")) {
+                Map<String, String> body = body(exchange);
+                service.recordPayment(path[1], LocalDate.parse(required(body, "date")),
+                                      Double.parseDouble(required(body, "amount")));
+                return respond(exchange, 201, status("recorded"));
+            }
+            if (path.length == 3 && path[2].equals("due") && method.equals("GET")) {
+                RentalAgreement agreement = service.getAgreement(path[1]);
+                Map<String, Object> fields = new LinkedHashMap<>();
+                fields.put("agreementId", agreement.getId());
+                fields.put("nextDueDate", agreement.getNextDueDate().toString());
+                fields.put("overdue", agreement.isPaymentOverdue(LocalDate.now()));
+                return respond(exchange, 200, Json.toJson(fields));
+            }
+            return notFound(exchange);
+        });
+    }
+
+    private void handleRevenue(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            String[] path = segments(exchange);
+            if (path.length != 3 || !exchange.getRequestMethod().equals("GET")) return notFound(exchange);
+            RevenueTotals totals;
+            if (path[1].equals("owners")) totals = service.getOwnerRevenue(path[2]);
+            else if (path[1].equals("locations")) totals = service.getLocationRevenue(path[2]);
+            else return notFound(exchange);
+
+            Map<String, Object> fields = new LinkedHashMap<>();
+            fields.put("houses", totals.getHouses());
+            fields.put("bookedHouses", totals.getBookedHouses());
+            fields.put("occupancyRate", Math.round(totals.getOccupancyRate() * 1000) / 1000.0);
+            fields.put("agreements", totals.getAgreements());
+            fields.put("depositsHeld", totals.getDepositsHeld());
+            fields.put("depositsTaken", totals.getDepositsTaken());
+            fields.put("payments", totals.getPayments());
+            fields.put("collected", totals.getCollected());
+            Map<String, String> query = query(exchange);
+            if (query.containsKey("from") || query.containsKey("to")) {
+                YearMonth from = YearMonth.parse(required(query, "from"));
+                YearMonth to = YearMonth.parse(required(query, "to"));
+                fields.put("from", from.toString());
+                fields.put("to", to.toString());
+                fields.put("collectedInRange", totals.getCollected(from, to));
+            }
+            return respond(exchange, 200, Json.toJson(fields));
+        });
+    }
+
+    interface Handler {
+        Void run() throws Exception;
+    }
+
+    // Run a handler and translate the rental exceptions into HTTP status codes
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        try {
+            handler.run();
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            respond(exchange, 400, error(e.getMessage()));
+        } catch (IOException e) {
+            respond(exchange, 500, error(e.getMessage()));
+        } catch (Exception e) {
+            String message = String.valueOf(e.getMessage());
+            respond(exchange, message.contains("not found") ? 404 : 409, error(message));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Void notFound(HttpExchange exchange) throws IOException {
+        return respond(exchange, 404, error("No such resource."));
+    }
+
+    private Void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        return null;
+    }
+
+    private static String[] segments(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        return Arrays.stream(path.split("/")).filter(s -> !s.isEmpty()).toArray(String[]::new);
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> result = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) return result;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            result.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                       URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return result;
+    }
+
+    private static Map<String, String> body(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return Json.parseObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String required(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null || value.isEmpty()) throw new IllegalArgumentException("Missing " + name + ".");
+        return value;
+    }
+
+    private static String houses(List<House> houses) {
+        StringBuilder sb = new StringBuilder("[");
+        for (House house : houses) {
+            if (sb.length() > 1) sb.append(',');
+            sb.append(Json.toJson(houseFields(house)));
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String rankedHouses(List<ScoredHouse> ranked) {
+        StringBuilder sb = new StringBuilder("[");
+        for (ScoredHouse match : ranked) {
+            if (sb.length() > 1) sb.append(',');
+            Map<String, Object> fields = houseFields(match.getHouse());
+            fields.put("score", Math.round(match.getScore() * 1000) / 1000.0);
+            sb.append(Json.toJson(fields));
+        }
+        return sb.append(']').toString();
+    }
+
+    private static Map<String, Object> houseFields(House house) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("id", house.getId());
+        fields.put("location", house.getLocation());
+        fields.put("price", house.getPrice());
+        fields.put("bedrooms", house.getBedrooms());
+        fields.put("owner", house.getOwner());
+        return fields;
+    }
+
+    private static String status(String status) {
+        return Json.toJson(Collections.singletonMap("status", status));
+    }
+
+    private static String error(String message) {
+        return Json.toJson(Collections.singletonMap("error", message));
+    }
+}
@@ -0,0 +1,189 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.*;
+
+// Counters and latency histograms of one operation. The total time of each call is
+// split into time spent in file I/O and the remaining in-memory work.
+class OperationMetrics {
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LatencyHistogram memory = new LatencyHistogram();
+    private final LatencyHistogram io = new LatencyHistogram();
+
+    void record(long totalNs, long ioNs, boolean failed) {
+        calls.increment();
+        if (failed) errors.increment();
+        total.record(totalNs);
+        memory.record(totalNs - ioNs);
+        if (ioNs > 0) io.record(ioNs);
+    }
+
+    public long getCalls() { return calls.sum(); }
+    public long getErrors() { return errors.sum(); }
+    public LatencyHistogram getTotal() { return total; }
+    public LatencyHistogram getMemory() { return memory; }
+    public LatencyHistogram getIo() { return io; }
+}
+
+// Runtime metrics for the rental operations: call and error counts, latency histograms
+// with p50/p99/p999, dataset sizes, a JMX bean and an optional periodic dump to a file.
+// File I/O done inside an operation is timed separately and charged to that operation
+// through a per-thread accumulator.
+class RentalMetrics implements RentalMetricsMXBean {
+    private static final double[] PERCENTILES = {50, 99, 99.9};
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private final ThreadLocal<long[]> ioNanos = ThreadLocal.withInitial(() -> new long[1]);
+    private ScheduledExecutorService dumper;
+
+    // Start timing an operation on this thread
+    public long begin() {
+        ioNanos.get()[0] = 0;
+        return System.nanoTime();
+    }
+
+    // Finish timing an operation started with begin()
+    public void end(String operation, long started, boolean failed) {
+        long totalNs = System.nanoTime() - started;
+        long[] io = ioNanos.get();
+        operation(operation).record(totalNs, Math.min(io[0], totalNs), failed);
+        io[0] = 0;
+    }
+
+    // Record a file write or read; its time also counts as I/O of the enclosing operation
+    public void recordIo(String name, long started) {
+        long elapsed = System.nanoTime() - started;
+        operation(name).record(elapsed, elapsed, false);
+        ioNanos.get()[0] += elapsed;
+    }
+
+    public void registerGauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public OperationMetrics operation(String name) {
+        return operations.computeIfAbsent(name, k -> new OperationMetrics());
+    }
+
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("rental:type=Metrics"));
+        } catch (JMException e) {
+            System.err.println("Could not register metrics MBean: " + e.getMessage());
+        }
+    }
+
+    // Periodically write the report to a file; a .json file gets the JSON report
+    public synchronized void startDump(String file, long intervalSec) {
+        if (dumper != null || intervalSec <= 0) return;
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        boolean json = file.toLowerCase(Locale.ROOT).endsWith(".json");
+        dumper.scheduleWithFixedDelay(() -> {
+            try {
+                Files.write(Paths.get(file), (json ? getReportJson() : getReportText()).getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                System.err.println("Metrics dump failed: " + e.getMessage());
+            }
+        }, intervalSec, intervalSec, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stopDump() {
+        if (dumper != null) {
+            dumper.shutdown();
+            dumper = null;
+        }
+    }
+
+    @Override public long getHouseCount() { return gauge("houses"); }
+    @Override public long getTenantCount() { return gauge("tenants"); }
+    @Override public long getAgreementCount() { return gauge("agreements"); }
+    @Override public long getWalBytes() { return gauge("walBytes"); }
+
+    @Override
+    public Map<String, Long> getCallCounts() {
+        Map<String, Long> result = new TreeMap<>();
+        operations.forEach((name, metrics) -> result.put(name, metrics.getCalls()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> result = new TreeMap<>();
+        operations.forEach((name, metrics) -> result.put(name, metrics.getErrors()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getP99Micros() {
+        Map<String, Long> result = new TreeMap<>();
+        operations.forEach((name, metrics) -> result.put(name, metrics.getTotal().getPercentile(99) / 1000));
+        return result;
+    }
+
+    @Override
+    public String getReportText() {
+        StringBuilder sb = new StringBuilder();
+        gauges.forEach((name, value) -> sb.append(String.format("%-24s %d%n", name, value.getAsLong())));
+        sb.append(String.format("%-24s %10s %8s %12s %12s %12s %12s %12s%n", "operation", "calls", "errors",
+                                "p50 us", "p99 us", "p999 us", "memory p99", "io p99"));
+        operations.forEach((name, metrics) -> {
+            LatencyHistogram total = metrics.getTotal();
+            sb.append(String.format("%-24s %10d %8d %12.1f %12.1f %12.1f %12.1f %12.1f%n", name, metrics.getCalls(),
+                                    metrics.getErrors(), total.getPercentile(50) / 1000.0,
+                                    total.getPercentile(99) / 1000.0, total.getPercentile(99.9) / 1000.0,
+                                    metrics.getMemory().getPercentile(99) / 1000.0,
+                                    metrics.getIo().getPercentile(99) / 1000.0));
+        });
+        return sb.toString();
+    }
+
+    @Override
+    public String getReportJson() {
+        StringBuilder sb = new StringBuilder("{\"gauges\":");
+        Map<String, Object> values = new LinkedHashMap<>();
+        gauges.forEach((name, value) -> values.put(name, value.getAsLong()));
+        sb.append(Json.toJson(values)).append(",\"operations\":{");
+        boolean first = true;
+        for (Map.Entry<String, OperationMetrics> entry : operations.entrySet()) {
+            if (!first) sb.append(',');
+            first = false;
+            OperationMetrics metrics = entry.getValue();
+            Map<String, Object> fields = new LinkedHashMap<>();
+            fields.put("calls", metrics.getCalls());
+            fields.put("errors", metrics.getErrors());
+            addLatencies(fields, "", metrics.getTotal());
+            addLatencies(fields, "memory", metrics.getMemory());
+            addLatencies(fields, "io", metrics.getIo());
+            Json.quote(sb, entry.getKey());
+            sb.append(':').append(Json.toJson(fields));
+        }
+        return sb.append("}}").toString();
+    }
+
+    private void addLatencies(Map<String, Object> fields, String prefix, LatencyHistogram histogram) {
+        fields.put(prefix.isEmpty() ? "meanNs" : prefix + "MeanNs", Math.round(histogram.getMean()));
+        for (double percentile : PERCENTILES) {
+            String name = "p" + (percentile == 99.9 ? "999" : String.valueOf((int) percentile)) + "Ns";
+            fields.put(prefix.isEmpty() ? name : prefix + Character.toUpperCase(name.charAt(0)) + name.substring(1),
+                       histogram.getPercentile(percentile));
+        }
+        fields.put(prefix.isEmpty() ? "maxNs" : prefix + "MaxNs", histogram.getMax());
+    }
+
+    private long gauge(String name) {
+        LongSupplier value = gauges.get(name);
+        return value == null ? 0 : value.getAsLong();
+    }
+}
@@ -0,0 +1,14 @@
+import java.util.Map;
+
+// JMX view of RentalMetrics, registered as "rental:type=Metrics"
+public interface RentalMetricsMXBean {
+    long getHouseCount();
+    long getTenantCount();
+    long getAgreementCount();
+    long getWalBytes();
+    Map<String, Long> getCallCounts();
+    Map<String, Long> getErrorCounts();
+    Map<String, Long> getP99Micros();
+    String getReportText();
+    String getReportJson();
+}
@@ -0,0 +1,241 @@
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Running totals for one owner or location: house and occupancy counts, deposits taken and still
+// held, and rent collected, overall and per calendar month. Counters are safe to update concurrently.
+class RevenueTotals {
+    private final AtomicInteger houses = new AtomicInteger();
+    private final AtomicInteger bookedHouses = new AtomicInteger();
+    private final LongAdder agreements = new LongAdder();
+    private final LongAdder depositsTakenCents = new LongAdder();
+    private final LongAdder depositsHeldCents = new LongAdder();
+    private final LongAdder collectedCents = new LongAdder();
+    private final LongAdder payments = new LongAdder();
+    private final Map<YearMonth, LongAdder> monthlyCents = new ConcurrentHashMap<>();
+
+    void addHouse(boolean booked) {
+        houses.incrementAndGet();
+        if (booked) bookedHouses.incrementAndGet();
+    }
+
+    void removeHouse(boolean booked) {
+        houses.decrementAndGet();
+        if (booked) bookedHouses.decrementAndGet();
+    }
+
+    void markBooked() { bookedHouses.incrementAndGet(); }
+    void markReleased() { bookedHouses.decrementAndGet(); }
+
+    void addAgreement(long deposit, boolean held) {
+        agreements.increment();
+        depositsTakenCents.add(deposit);
+        if (held) depositsHeldCents.add(deposit);
+    }
+
+    void releaseDeposit(long deposit) { depositsHeldCents.add(-deposit); }
+
+    void addPayment(YearMonth month, long cents) {
+        payments.increment();
+        collectedCents.add(cents);
+        monthlyCents.computeIfAbsent(month, k -> new LongAdder()).add(cents);
+    }
+
+    // Add the payment counts and amounts of another set of totals
+    void mergePayments(RevenueTotals other) {
+        payments.add(other.payments.sum());
+        collectedCents.add(other.collectedCents.sum());
+        for (Map.Entry<YearMonth, LongAdder> entry : other.monthlyCents.entrySet()) {
+            monthlyCents.computeIfAbsent(entry.getKey(), k -> new LongAdder()).add(entry.getValue().sum());
+        }
+    }
+
+    public int getHouses() { return houses.get(); }
+    public int getBookedHouses() { return bookedHouses.get(); }
+    public long getAgreements() { return agreements.sum(); }
+    public long getPayments() { return payments.sum(); }
+    // Deposits of leases that have not ended yet
+    public double getDepositsHeld() { return depositsHeldCents.sum() / 100.0; }
+    // Every deposit ever taken, including those of ended leases
+    public double getDepositsTaken() { return depositsTakenCents.sum() / 100.0; }
+    public double getCollected() { return collectedCents.sum() / 100.0; }
+
+    public double getOccupancyRate() {
+        int total = houses.get();
+        return total == 0 ? 0 : (double) bookedHouses.get() / total;
+    }
+
+    // Rent collected in the months from..to, both inclusive
+    public double getCollected(YearMonth from, YearMonth to) {
+        long cents = 0;
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            LongAdder bucket = monthlyCents.get(month);
+            if (bucket != null) cents += bucket.sum();
+        }
+        return cents / 100.0;
+    }
+
+    // Rent collected per month, oldest first
+    public SortedMap<YearMonth, Double> getMonthly() {
+        SortedMap<YearMonth, Double> monthly = new TreeMap<>();
+        for (Map.Entry<YearMonth, LongAdder> entry : monthlyCents.entrySet()) {
+            monthly.put(entry.getKey(), entry.getValue().sum() / 100.0);
+        }
+        return monthly;
+    }
+}
+
+// Materialized revenue and occupancy totals per owner and per location, kept up to date by
+// each mutation so dashboard queries never walk the agreements and their payments.
+// Locations are keyed by their normalized name, owners by their exact name.
+// A deposit stops being held the day after its lease ends: agreements are queued by that day
+// and releaseDeposits takes them off when the lease sweep reaches it.
+class RevenueAggregates {
+    private final Map<String, RevenueTotals> byOwner = new ConcurrentHashMap<>();
+    private final Map<String, RevenueTotals> byLocation = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, Queue<RentalAgreement>> depositReleases = new ConcurrentSkipListMap<>();
+
+    public RevenueTotals forOwner(String owner) {
+        RevenueTotals totals = byOwner.get(owner);
+        return totals == null ? new RevenueTotals() : totals;
+    }
+
+    public RevenueTotals forLocation(String location) {
+        RevenueTotals totals = byLocation.get(HouseSearchIndex.normalize(location));
+        return totals == null ? new RevenueTotals() : totals;
+    }
+
+    public Set<String> owners() { return byOwner.keySet(); }
+    public Set<String> locations() { return byLocation.keySet(); }
+
+    public void addHouse(House house) {
+        owner(house).addHouse(house.isBooked());
+        location(house).addHouse(house.isBooked());
+    }
+
+    public void removeHouse(House house) {
+        owner(house).removeHouse(house.isBooked());
+        location(house).removeHouse(house.isBooked());
+    }
+
+    public void markBooked(House house) {
+        owner(house).markBooked();
+        location(house).markBooked();
+    }
+
+    public void markReleased(House house) {
+        owner(house).markReleased();
+        location(house).markReleased();
+    }
+
+    // Count an agreement's deposit and every payment already on its ledger
+    public void addAgreement(RentalAgreement agreement) {
+        addAgreement(agreement, 0);
+    }
+
+    // Count an agreement's deposit and its payments from index skipPayments on. The payments of an
+    // archived history are never read here; they are counted by addPayments while loading.
+    private void addAgreement(RentalAgreement agreement, int skipPayments) {
+        House house = agreement.getHouse();
+        if (house == null) return;
+        long deposit = BinarySnapshot.toCents(agreement.getDeposit());
+        int releaseDay = LeaseCalendar.day(agreement.getEndDate()) + 1;
+        boolean held = releaseDay > LeaseCalendar.day(LocalDate.now());
+        owner(house).addAgreement(deposit, held);
+        location(house).addAgreement(deposit, held);
+        if (held) depositReleases.computeIfAbsent(releaseDay, k -> new ConcurrentLinkedQueue<>()).add(agreement);
+        if (agreement.isArchived()) return;
+        PaymentLedger ledger = agreement.getLedger();
+        for (int i = skipPayments; i < ledger.size(); i++) {
+            addPayment(agreement, ledger.getDate(i), ledger.getAmountCents(i));
+        }
+    }
+
+    public void addPayment(RentalAgreement agreement, LocalDate date, long amountCents) {
+        House house = agreement.getHouse();
+        if (house == null) return;
+        YearMonth month = YearMonth.from(date);
+        owner(house).addPayment(month, amountCents);
+        location(house).addPayment(month, amountCents);
+    }
+
+    // Count a payment history straight from its stored "yyyy-MM-dd:amount;..." bytes without
+    // building a ledger; returns the number of payments
+    public int addPayments(House house, byte[] history, int from, int to) {
+        int count = 0;
+        int start = from;
+        while (start < to) {
+            int end = start;
+            while (end < to && history[end] != ';') end++;
+            YearMonth month = YearMonth.of(digits(history, start, 4), digits(history, start + 5, 2));
+            long cents = BinarySnapshot.toCents(Double.parseDouble(
+                    new String(history, start + 11, end - start - 11, StandardCharsets.US_ASCII)));
+            if (house != null) {
+                owner(house).addPayment(month, cents);
+                location(house).addPayment(month, cents);
+            }
+            count++;
+            start = end + 1;
+        }
+        return count;
+    }
+
+    // Stop counting the deposits of leases that ended before the day; returns how many were released
+    public int releaseDeposits(int day) {
+        int released = 0;
+        Map.Entry<Integer, Queue<RentalAgreement>> entry;
+        while ((entry = depositReleases.firstEntry()) != null && entry.getKey() <= day) {
+            if (!depositReleases.remove(entry.getKey(), entry.getValue())) continue;
+            for (RentalAgreement agreement : entry.getValue()) {
+                long deposit = BinarySnapshot.toCents(agreement.getDeposit());
+                owner(agreement.getHouse()).releaseDeposit(deposit);
+                location(agreement.getHouse()).releaseDeposit(deposit);
+                released++;
+            }
+        }
+        return released;
+    }
+
+    // Recompute every total from scratch, spreading houses and agreements across all cores
+    public void rebuild(Collection<House> houses, Collection<RentalAgreement> agreements) {
+        rebuild(houses, agreements, null, null);
+    }
+
+    // Rebuild with the payments of archived histories already counted into archivedPayments by
+    // addPayments. An archived history made resident again by a replayed payment is only counted
+    // from the first payment the archive did not hold.
+    public void rebuild(Collection<House> houses, Collection<RentalAgreement> agreements,
+                        RevenueAggregates archivedPayments, PaymentArchive archive) {
+        byOwner.clear();
+        byLocation.clear();
+        depositReleases.clear();
+        houses.parallelStream().forEach(this::addHouse);
+        agreements.parallelStream().forEach(agreement ->
+            addAgreement(agreement, archive == null ? 0 : archive.paymentCount(agreement.getId())));
+        if (archivedPayments == null) return;
+        archivedPayments.byOwner.forEach((owner, totals) ->
+            byOwner.computeIfAbsent(owner, k -> new RevenueTotals()).mergePayments(totals));
+        archivedPayments.byLocation.forEach((location, totals) ->
+            byLocation.computeIfAbsent(location, k -> new RevenueTotals()).mergePayments(totals));
+    }
+
+    private static int digits(byte[] bytes, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) value = value * 10 + (bytes[i] - '0');
+        return value;
+    }
+
+    private RevenueTotals owner(House house) {
+        return byOwner.computeIfAbsent(house.getOwner(), k -> new RevenueTotals());
+    }
+
+    private RevenueTotals location(House house) {
+        return byLocation.computeIfAbsent(HouseSearchIndex.normalize(house.getLocation()), k -> new RevenueTotals());
+    }
+}
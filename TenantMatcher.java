@@ -0,0 +1,140 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// An available house with its match score for one tenant, between 0 and 1
+class ScoredHouse {
+    private final House house;
+    private final double score;
+    private final boolean preferredLocation;
+
+    public ScoredHouse(House house, double score, boolean preferredLocation) {
+        this.house = house;
+        this.score = score;
+        this.preferredLocation = preferredLocation;
+    }
+
+    public House getHouse() { return house; }
+    public double getScore() { return score; }
+    public boolean isPreferredLocation() { return preferredLocation; }
+}
+
+// Ranks available houses for a tenant by location match, price fit and bedroom fit.
+// Only the best K candidates are kept, in a min-heap of size K whose head is the weakest
+// match, so ranking costs O(n log K) instead of sorting every candidate. Other locations are
+// only searched when the preferred one has fewer than K candidates, cheapest first, and at most
+// FALLBACK_SCAN_FACTOR * K houses in each, so a tenant with an empty or unknown preferred
+// location never costs a scan of every house.
+//   location  1 in the preferred location, 0 elsewhere
+//   price     1 within budget, falling linearly to 0 at 20% over budget; dearer houses are skipped
+//   bedrooms  1 for an exact match, 0.1 less per extra bedroom, 0.5 less per missing bedroom
+class TenantMatcher {
+    private static final double LOCATION_WEIGHT = 0.5;
+    private static final double PRICE_WEIGHT = 0.3;
+    private static final double BEDROOM_WEIGHT = 0.2;
+    private static final double OVER_BUDGET_TOLERANCE = 0.2;
+    private static final int FALLBACK_SCAN_FACTOR = 8;
+
+    // Weakest first: lower score, then elsewhere before the preferred location, then dearer, then
+    // larger ID. A preferred house scores at least LOCATION_WEIGHT and any other house at most that,
+    // so the location tie-break makes every preferred house outrank every other one.
+    private static final Comparator<ScoredHouse> WEAKEST_FIRST =
+        Comparator.comparingDouble(ScoredHouse::getScore)
+                  .thenComparing(ScoredHouse::isPreferredLocation)
+                  .thenComparing(Comparator.comparingDouble((ScoredHouse s) -> s.getHouse().getPrice()).reversed())
+                  .thenComparing(Comparator.comparing((ScoredHouse s) -> s.getHouse().getId()).reversed());
+
+    private final HouseSearchIndex index;
+
+    public TenantMatcher(HouseSearchIndex index) {
+        this.index = index;
+    }
+
+    // The k best available houses for a tenant, best first
+    public List<ScoredHouse> rank(Tenant tenant, int k) {
+        if (k <= 0) return new ArrayList<>();
+        PriorityQueue<ScoredHouse> heap = new PriorityQueue<>(k + 1, WEAKEST_FIRST);
+        double maxPrice = tenant.getBudget() > 0 ? tenant.getBudget() * (1 + OVER_BUDGET_TOLERANCE) : Double.MAX_VALUE;
+        String preferred = HouseSearchIndex.normalize(tenant.getPreferredLocation());
+        index.forEach(preferred, maxPrice, house -> offer(heap, k, new ScoredHouse(house, score(tenant, house, true), true)));
+
+        // Every preferred house outranks every other one, so other locations only matter when the
+        // preferred one cannot fill the heap
+        if (heap.size() < k) {
+            int scanLimit = FALLBACK_SCAN_FACTOR * k;
+            for (String location : index.locations()) {
+                if (location.equals(preferred)) continue;
+                int[] scanned = {0};
+                index.forEachWhile(location, maxPrice, house -> {
+                    // Dearer houses only fit the budget worse, so once even a perfect bedroom fit
+                    // cannot beat the weakest kept match, the rest of the location cannot either
+                    double best = PRICE_WEIGHT * priceFit(tenant.getBudget(), house.getPrice()) + BEDROOM_WEIGHT;
+                    if (heap.size() == k && best < heap.peek().getScore()) return false;
+                    offer(heap, k, new ScoredHouse(house, score(tenant, house, false), false));
+                    return ++scanned[0] < scanLimit;
+                });
+            }
+        }
+
+        List<ScoredHouse> ranked = new ArrayList<>(heap);
+        ranked.sort(WEAKEST_FIRST.reversed());
+        return ranked;
+    }
+
+    // Rank houses for many tenants at once, one tenant per task on the common pool. Each tenant is
+    // ranked independently, so the same house can top several rankings; see assign
+    public Map<String, List<ScoredHouse>> rankAll(Collection<Tenant> tenants, int k) {
+        Map<String, List<ScoredHouse>> results = new ConcurrentHashMap<>();
+        tenants.parallelStream().forEach(tenant -> results.put(tenant.getId(), rank(tenant, k)));
+        return results;
+    }
+
+    // Give each tenant at most one house and each house to at most one tenant. Candidate pairs from
+    // the rankings are taken best score first, so a contested house goes to the tenant it suits
+    // best. A tenant whose ranked houses all go to better matches stays unassigned; a larger k
+    // in the ranking gives such tenants more alternatives.
+    public static Map<String, ScoredHouse> assign(Map<String, List<ScoredHouse>> rankings) {
+        List<Map.Entry<String, ScoredHouse>> candidates = new ArrayList<>();
+        for (Map.Entry<String, List<ScoredHouse>> ranking : rankings.entrySet()) {
+            for (ScoredHouse match : ranking.getValue()) {
+                candidates.add(new AbstractMap.SimpleImmutableEntry<>(ranking.getKey(), match));
+            }
+        }
+        candidates.sort(Comparator.comparing((Map.Entry<String, ScoredHouse> c) -> c.getValue(), WEAKEST_FIRST.reversed())
+                                  .thenComparing(Map.Entry::getKey));
+        Map<String, ScoredHouse> assigned = new HashMap<>();
+        Set<String> takenHouses = new HashSet<>();
+        for (Map.Entry<String, ScoredHouse> candidate : candidates) {
+            if (assigned.containsKey(candidate.getKey())) continue;
+            if (!takenHouses.add(candidate.getValue().getHouse().getId())) continue;
+            assigned.put(candidate.getKey(), candidate.getValue());
+        }
+        return assigned;
+    }
+
+    public static double score(Tenant tenant, House house, boolean preferredLocation) {
+        return (preferredLocation ? LOCATION_WEIGHT : 0)
+             + PRICE_WEIGHT * priceFit(tenant.getBudget(), house.getPrice())
+             + BEDROOM_WEIGHT * bedroomFit(tenant.getBedrooms(), house.getBedrooms());
+    }
+
+    private static double priceFit(double budget, double price) {
+        if (budget <= 0 || price <= budget) return 1.0;
+        return Math.max(0, 1 - (price - budget) / (budget * OVER_BUDGET_TOLERANCE));
+    }
+
+    private static double bedroomFit(int wanted, int bedrooms) {
+        if (wanted <= 0) return 1.0;
+        if (bedrooms >= wanted) return Math.max(0, 1 - 0.1 * (bedrooms - wanted));
+        return Math.max(0, 1 - 0.5 * (wanted - bedrooms));
+    }
+
+    // Keep the heap at k entries, replacing the weakest when a better candidate arrives
+    private static void offer(PriorityQueue<ScoredHouse> heap, int k, ScoredHouse candidate) {
+        if (heap.size() < k) {
+            heap.add(candidate);
+        } else if (WEAKEST_FIRST.compare(candidate, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(candidate);
+        }
+    }
+}
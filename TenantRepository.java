@@ -0,0 +1,20 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory store of tenants indexed by ID
+class TenantRepository {
+    private final Map<String, Tenant> byId = new ConcurrentHashMap<>();
+
+    public Tenant findById(String id) { return byId.get(id); }
+    public boolean contains(String id) { return byId.containsKey(id); }
+    public Collection<Tenant> findAll() { return byId.values(); }
+    public int size() { return byId.size(); }
+
+    // Add a tenant unless its ID is already taken
+    public boolean add(Tenant tenant) {
+        return byId.putIfAbsent(tenant.getId(), tenant) == null;
+    }
+
+    public Tenant remove(String id) { return byId.remove(id); }
+    public void clear() { byId.clear(); }
+}
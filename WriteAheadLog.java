@@ -0,0 +1,300 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Kinds of mutation recorded in the write-ahead log
+enum WalRecordType {
+    HOUSE_ADDED("HA"),
+    HOUSE_REMOVED("HR"),
+    TENANT_REGISTERED("TR"),
+    HOUSE_BOOKED("HB"),
+    PAYMENT_RECORDED("PR");
+
+    private final String code;
+
+    WalRecordType(String code) { this.code = code; }
+
+    public String getCode() { return code; }
+
+    public static WalRecordType fromCode(String code) {
+        for (WalRecordType type : values()) {
+            if (type.code.equals(code)) return type;
+        }
+        return null;
+    }
+}
+
+// When an append is forced to disk
+//   SYNC   before append returns, every fsyncBatch records (1 = every record)
+//   GROUP  append waits for the next group fsync, which runs every sync interval and covers
+//          every record written since the last one
+//   ASYNC  append returns at once; the background sync forces records within one interval
+enum DurabilityMode {
+    SYNC, GROUP, ASYNC;
+
+    public static DurabilityMode parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown durability mode '" + value + "'; use sync, group or async");
+        }
+    }
+}
+
+// A single log entry: record type plus the comma separated payload
+class WalRecord {
+    private WalRecordType type;
+    private String payload;
+
+    public WalRecord(WalRecordType type, String payload) {
+        this.type = type;
+        this.payload = payload;
+    }
+
+    public WalRecordType getType() { return type; }
+    public String getPayload() { return payload; }
+}
+
+// Append-only log of mutations made since the last snapshot.
+// Each line is "crc|type|payload", with backslashes and line breaks in the payload escaped so a
+// record is always exactly one line. A bad last line is a torn write from a crash and is cut off;
+// a bad line with records after it is corruption and stops the log from opening.
+class WriteAheadLog implements Closeable {
+    private final Path path;
+    private final DurabilityMode mode;
+    private final int fsyncBatch;
+    private FileChannel channel;
+    private int unsyncedRecords = 0;
+    // Records written and records known to be on disk, for group commit
+    private long writtenRecords = 0;
+    private long syncedRecords = 0;
+    // Records covered by the last failed fsync, and its error, so group commit waiters can fail too
+    private long failedRecords = 0;
+    private IOException syncFailure;
+    private ScheduledExecutorService flusher;
+
+    public WriteAheadLog(String file, int fsyncBatch) {
+        this(file, DurabilityMode.SYNC, fsyncBatch);
+    }
+
+    public WriteAheadLog(String file, DurabilityMode mode, int fsyncBatch) {
+        this.path = Paths.get(file);
+        this.mode = mode;
+        this.fsyncBatch = Math.max(1, fsyncBatch);
+    }
+
+    public DurabilityMode getMode() { return mode; }
+
+    // Force batched records to disk every intervalMs even if the batch is not full
+    public synchronized void startBackgroundSync(long intervalMs) {
+        if (flusher != null || intervalMs <= 0) return;
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "wal-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                sync();
+            } catch (IOException e) {
+                System.err.println("WAL sync failed: " + e.getMessage());
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Append one record and force it to disk as the durability mode requires
+    public synchronized void append(WalRecordType type, String payload) throws IOException {
+        ensureOpen();
+        String body = type.getCode() + "|" + escape(payload);
+        String line = checksum(body) + "|" + body + "\n";
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) channel.write(buffer);
+        written(1);
+    }
+
+    // Append a batch of records with a single write
+    public synchronized void appendAll(List<WalRecord> records) throws IOException {
+        if (records.isEmpty()) return;
+        ensureOpen();
+        StringBuilder sb = new StringBuilder();
+        for (WalRecord record : records) {
+            String body = record.getType().getCode() + "|" + escape(record.getPayload());
+            sb.append(checksum(body)).append('|').append(body).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) channel.write(buffer);
+        written(records.size());
+    }
+
+    public synchronized void sync() throws IOException {
+        try {
+            if (channel != null && unsyncedRecords > 0) {
+                channel.force(false);
+                unsyncedRecords = 0;
+            }
+            syncedRecords = writtenRecords;
+        } catch (IOException e) {
+            failedRecords = writtenRecords;
+            syncFailure = e;
+            throw e;
+        } finally {
+            notifyAll();
+        }
+    }
+
+    private void written(int count) throws IOException {
+        unsyncedRecords += count;
+        writtenRecords += count;
+        switch (mode) {
+            case SYNC:
+                if (unsyncedRecords >= fsyncBatch) sync();
+                break;
+            case GROUP:
+                // Without the background sync there is no group to join, so force the record now
+                if (flusher == null) {
+                    sync();
+                    break;
+                }
+                // wait() releases the lock, so other appenders join the same fsync
+                long mine = writtenRecords;
+                try {
+                    while (syncedRecords < mine && failedRecords < mine) wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for group commit");
+                }
+                // A later fsync may have succeeded and covered the record after all
+                if (syncedRecords < mine) throw new IOException("Group commit failed: " + syncFailure.getMessage(), syncFailure);
+                break;
+            default:
+                break;
+        }
+    }
+
+    public synchronized long size() throws IOException {
+        if (channel != null) return channel.size();
+        return Files.exists(path) ? Files.size(path) : 0;
+    }
+
+    // Discard the log once its records are covered by a fresh snapshot
+    public synchronized void reset() throws IOException {
+        ensureOpen();
+        channel.truncate(0);
+        channel.force(true);
+        unsyncedRecords = 0;
+        syncedRecords = writtenRecords;
+        notifyAll();
+    }
+
+    // Feed every valid record of the given types to the handler, in log order
+    public void replay(Set<WalRecordType> types, Consumer<WalRecord> handler) throws IOException {
+        scan(record -> {
+            if (types.contains(record.getType())) handler.accept(record);
+        });
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            sync();
+            channel.close();
+            channel = null;
+        }
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher = null;
+        }
+    }
+
+    // Open for appending, cutting off any torn record left by a crash
+    private void ensureOpen() throws IOException {
+        if (channel != null) return;
+        long validLength = validLength();
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (channel.size() > validLength) channel.truncate(validLength);
+        channel.position(validLength);
+    }
+
+    private long validLength() throws IOException {
+        return scan(record -> { });
+    }
+
+    // Read newline terminated, checksummed records and return the length of the valid prefix.
+    // Only the last line may be invalid; anything after an invalid line means the log is corrupt.
+    private long scan(Consumer<WalRecord> handler) throws IOException {
+        if (!Files.exists(path)) return 0;
+        long length = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                WalRecord record = parse(line.toString(StandardCharsets.UTF_8.name()));
+                if (record == null) {
+                    if (in.read() == -1) break;
+                    throw new IOException("Corrupt record in " + path + " at byte " + length +
+                                          "; records follow it, so it is not a torn write");
+                }
+                handler.accept(record);
+                length += line.size() + 1;
+                line.reset();
+            }
+        }
+        return length;
+    }
+
+    private static WalRecord parse(String line) {
+        int sep = line.indexOf('|');
+        if (sep < 0) return null;
+        String body = line.substring(sep + 1);
+        if (!line.substring(0, sep).equals(checksum(body))) return null;
+        int typeSep = body.indexOf('|');
+        if (typeSep < 0) return null;
+        WalRecordType type = WalRecordType.fromCode(body.substring(0, typeSep));
+        if (type == null) return null;
+        return new WalRecord(type, unescape(body.substring(typeSep + 1)));
+    }
+
+    private static String escape(String payload) {
+        if (payload.indexOf('\\') < 0 && payload.indexOf('\n') < 0 && payload.indexOf('\r') < 0) return payload;
+        StringBuilder sb = new StringBuilder(payload.length() + 8);
+        for (int i = 0; i < payload.length(); i++) {
+            char c = payload.charAt(i);
+            if (c == '\\') sb.append("\\\\");
+            else if (c == '\n') sb.append("\\n");
+            else if (c == '\r') sb.append("\\r");
+            else sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String payload) {
+        if (payload.indexOf('\\') < 0) return payload;
+        StringBuilder sb = new StringBuilder(payload.length());
+        for (int i = 0; i < payload.length(); i++) {
+            char c = payload.charAt(i);
+            if (c == '\\' && i + 1 < payload.length()) {
+                char next = payload.charAt(++i);
+                sb.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String checksum(String body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+}
@@ -0,0 +1,126 @@
+package rental.jmh;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// JMH version of RentalBenchmark: the same generated datasets and operations, measured in
+// forked JVMs with results returned to JMH so the work cannot be optimized away.
+// JMH rejects benchmarks in the default package, and a named package cannot refer to the
+// application's classes, so Main and the dataset generator are called through method handles.
+//
+// Run with: gradle jmh   (results in build/results/jmh/results.json)
+// The 1M-house dataset needs about 6 GB of heap per fork; see build.gradle for running one size.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 2, jvmArgsAppend = {"-Xmx6g", "-Drental.wal.fsyncBatch=2147483647"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RentalJmhBenchmark {
+    // Bookings go on dates after every generated lease, one day per booking, so they never overlap
+    private static final LocalDate BOOKING_BASE = LocalDate.of(2100, 1, 1);
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private Path dir;
+    private String[] locations;
+    private int agreements;
+    private Object rms;
+    private MethodHandle newMain;
+    private MethodHandle load;
+    private MethodHandle searchHouses;
+    private MethodHandle matchTenantWithHouses;
+    private MethodHandle bookHouse;
+    private MethodHandle recordPayment;
+    private MethodHandle saveAgreements;
+    private final Random random = new Random(42);
+    private long bookings;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        Class<?> generator = Class.forName("RentalBenchmark");
+        Class<?> main = Class.forName("Main");
+        newMain = lookup.findConstructor(main, MethodType.methodType(void.class, String.class));
+        load = lookup.findVirtual(main, "load", MethodType.methodType(void.class));
+        searchHouses = lookup.findVirtual(main, "searchHouses",
+                MethodType.methodType(List.class, String.class, double.class));
+        matchTenantWithHouses = lookup.findVirtual(main, "matchTenantWithHouses",
+                MethodType.methodType(List.class, String.class));
+        bookHouse = lookup.findVirtual(main, "bookHouse", MethodType.methodType(String.class, String.class,
+                String.class, LocalDate.class, LocalDate.class, double.class));
+        recordPayment = lookup.findVirtual(main, "recordPayment",
+                MethodType.methodType(void.class, String.class, LocalDate.class, double.class));
+        saveAgreements = lookup.findVirtual(main, "saveAgreements", MethodType.methodType(void.class));
+        MethodHandle getAgreements = lookup.findVirtual(main, "getAgreements", MethodType.methodType(Collection.class));
+
+        dir = Files.createTempDirectory("rental-jmh-" + size + "-");
+        lookup.findStatic(generator, "generateDataset", MethodType.methodType(void.class, Path.class, int.class))
+              .invoke(dir, size);
+        locations = (String[]) lookup.findStatic(generator, "locations", MethodType.methodType(String[].class)).invoke();
+        rms = newMain.invoke(dir.toString());
+        load.invoke(rms);
+        // The generator numbers agreements RA1..RAn
+        agreements = ((Collection<?>) getAgreements.invoke(rms)).size();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public Object load() throws Throwable {
+        Object loaded = newMain.invoke(dir.toString());
+        load.invoke(loaded);
+        return loaded;
+    }
+
+    @Benchmark
+    public Object searchHouses() throws Throwable {
+        return searchHouses.invoke(rms, locations[random.nextInt(locations.length)], 5000.0 + random.nextInt(45000));
+    }
+
+    @Benchmark
+    public Object matchTenantWithHouses() throws Throwable {
+        return matchTenantWithHouses.invoke(rms, "t" + random.nextInt(size));
+    }
+
+    @Benchmark
+    public Object bookHouse() throws Throwable {
+        long booking = bookings++;
+        LocalDate day = BOOKING_BASE.plusDays(booking / size);
+        return bookHouse.invoke(rms, "h" + (booking % size), "t" + random.nextInt(size), day, day, 10000.0);
+    }
+
+    @Benchmark
+    public void recordPayment() throws Throwable {
+        recordPayment.invoke(rms, "RA" + (1 + random.nextInt(agreements)), LocalDate.now(), 15000.0);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void saveAgreements() throws Throwable {
+        saveAgreements.invoke(rms);
+    }
+}